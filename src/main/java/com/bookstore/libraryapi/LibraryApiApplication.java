@@ -1,8 +1,12 @@
 package com.bookstore.libraryapi;
 
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
+import com.bookstore.libraryapi.api.mapper.GeneratedDtoMapper;
+import com.bookstore.libraryapi.api.mapper.ModelMapperDtoMapper;
 import com.bookstore.libraryapi.service.EmailService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -26,4 +30,9 @@ public class LibraryApiApplication {
 	public ModelMapper modelMapper() {
 		return new ModelMapper();
 	}
+
+	@Bean
+	public DtoMapper dtoMapper(ModelMapper modelMapper, @Value("${application.mapping.engine:generated}") String engine) {
+		return "modelmapper".equalsIgnoreCase(engine) ? new ModelMapperDtoMapper(modelMapper) : new GeneratedDtoMapper();
+	}
 }
@@ -0,0 +1,33 @@
+package com.bookstore.libraryapi.actuator;
+
+import com.bookstore.libraryapi.service.BookSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "booksearch")
+@RequiredArgsConstructor
+public class BookSearchEndpoint {
+
+    private final BookSearchService searchService;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("indexedCount", searchService.getIndexedCount());
+        result.put("rebuilding", searchService.isRebuilding());
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        return Collections.singletonMap("started", searchService.rebuild());
+    }
+}
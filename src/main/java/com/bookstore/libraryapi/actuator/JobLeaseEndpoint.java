@@ -0,0 +1,38 @@
+package com.bookstore.libraryapi.actuator;
+
+import com.bookstore.libraryapi.model.entity.JobLease;
+import com.bookstore.libraryapi.service.JobLeaseService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "jobleases")
+@RequiredArgsConstructor
+public class JobLeaseEndpoint {
+
+    private final JobLeaseService leaseService;
+
+    @Value("${application.scheduler.late-loans.shard-count:1}")
+    private int shardCount;
+
+    @Value("${application.scheduler.late-loans.lease-duration-minutes:30}")
+    private long leaseDurationMinutes;
+
+    @ReadOperation
+    public Map<String, Object> leases() {
+        List<JobLease> leases = leaseService.findAll();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("instanceId", leaseService.getInstanceId());
+        result.put("shardCount", shardCount);
+        result.put("leaseDurationMinutes", leaseDurationMinutes);
+        result.put("leases", leases);
+        return result;
+    }
+}
@@ -0,0 +1,81 @@
+package com.bookstore.libraryapi.actuator;
+
+import com.bookstore.libraryapi.config.SqlQueryStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Statement shapes ranked by total time, by executions or, with {@code sort=repeats}, by the most
+ * times a single request ran them, which is where an N+1 shows up.
+ */
+@Component
+@Endpoint(id = "sqlqueries")
+@ConditionalOnProperty(name = "application.metrics.sql.enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+public class SqlQueriesEndpoint {
+
+    private final SqlQueryStats stats;
+
+    @Value("${application.metrics.sql.top-shapes:20}")
+    private int topShapes;
+
+    @Value("${application.metrics.sql.budget.statements:25}")
+    private int maxStatements;
+
+    @Value("${application.metrics.sql.budget.time-ms:250}")
+    private long maxSqlTimeMs;
+
+    @ReadOperation
+    public Map<String, Object> queries(@Nullable String sort) {
+        Map<String, Object> budget = new LinkedHashMap<>();
+        budget.put("statements", maxStatements);
+        budget.put("timeMs", maxSqlTimeMs);
+        budget.put("overBudgetCount", stats.getOverBudgetCount());
+        budget.put("recentOverBudget", stats.getOverBudget());
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("budget", budget);
+        result.put("shapes", stats.top(order(sort), topShapes).stream().map(SqlQueriesEndpoint::toMap)
+                .collect(Collectors.toList()));
+        return result;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        stats.reset();
+    }
+
+    private static Comparator<SqlQueryStats.Shape> order(String sort) {
+        if ("count".equals(sort)) {
+            return SqlQueryStats.Shape.BY_COUNT;
+        }
+        if ("repeats".equals(sort)) {
+            return SqlQueryStats.Shape.BY_REPEATS;
+        }
+        return SqlQueryStats.Shape.BY_TIME;
+    }
+
+    private static Map<String, Object> toMap(SqlQueryStats.Shape shape) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sql", shape.getSql());
+        result.put("count", shape.getCount());
+        result.put("totalMs", TimeUnit.NANOSECONDS.toMillis(shape.getTotalNanos()));
+        result.put("meanUs", shape.getCount() == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(shape.getTotalNanos() / shape.getCount()));
+        result.put("maxUs", TimeUnit.NANOSECONDS.toMicros(shape.getMaxNanos()));
+        result.put("maxPerRequest", shape.getMaxPerRequest());
+        result.put("maxPerRequestEndpoint", shape.getMaxPerRequestEndpoint());
+        return result;
+    }
+}
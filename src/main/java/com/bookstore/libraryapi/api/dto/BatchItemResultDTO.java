@@ -0,0 +1,18 @@
+package com.bookstore.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDTO {
+    private Integer index;
+    private Long id;
+    private String isbn;
+    private boolean success;
+    private String message;
+}
@@ -0,0 +1,19 @@
+package com.bookstore.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+    private long received;
+    private long imported;
+    private long rejected;
+    private List<BatchItemResultDTO> errors;
+}
@@ -0,0 +1,18 @@
+package com.bookstore.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSearchResultDTO {
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+    private float score;
+}
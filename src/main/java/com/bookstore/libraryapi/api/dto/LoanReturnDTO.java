@@ -0,0 +1,15 @@
+package com.bookstore.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class LoanReturnDTO {
+    private Long id;
+    private Boolean returned;
+}
@@ -0,0 +1,22 @@
+package com.bookstore.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanStatsDTO {
+    private long totalLoans;
+    private long activeLoans;
+    private long overdueLoans;
+    private List<RankingEntryDTO> topBooks;
+    private List<RankingEntryDTO> topCustomers;
+    private LocalDateTime generatedAt;
+}
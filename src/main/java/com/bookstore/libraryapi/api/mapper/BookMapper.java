@@ -0,0 +1,19 @@
+package com.bookstore.libraryapi.api.mapper;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.model.entity.Book;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.NullValueCheckStrategy;
+
+@Mapper(builder = @Builder(disableBuilder = true), nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
+public interface BookMapper {
+
+    BookDto toDto(Book book);
+
+    @Mapping(target = "activeLoanId", ignore = true)
+    @Mapping(target = "loans", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Book toEntity(BookDto dto);
+}
@@ -0,0 +1,21 @@
+package com.bookstore.libraryapi.api.mapper;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+
+/**
+ * Entity/DTO conversions used by the controllers. The implementation is chosen with
+ * {@code application.mapping.engine}: {@code generated} (default) or {@code modelmapper}.
+ */
+public interface DtoMapper {
+
+    BookDto toDto(Book book);
+
+    Book toEntity(BookDto dto);
+
+    LoanDto toDto(Loan loan);
+
+    Loan toEntity(LoanDto dto);
+}
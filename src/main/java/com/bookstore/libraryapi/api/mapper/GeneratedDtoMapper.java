@@ -0,0 +1,38 @@
+package com.bookstore.libraryapi.api.mapper;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * Delegates to the mappers generated by MapStruct at compile time: plain getter/setter code,
+ * no reflection or type map lookups per call.
+ */
+public class GeneratedDtoMapper implements DtoMapper {
+
+    private final BookMapper bookMapper = Mappers.getMapper(BookMapper.class);
+
+    private final LoanMapper loanMapper = Mappers.getMapper(LoanMapper.class);
+
+    @Override
+    public BookDto toDto(Book book) {
+        return bookMapper.toDto(book);
+    }
+
+    @Override
+    public Book toEntity(BookDto dto) {
+        return bookMapper.toEntity(dto);
+    }
+
+    @Override
+    public LoanDto toDto(Loan loan) {
+        return loanMapper.toDto(loan);
+    }
+
+    @Override
+    public Loan toEntity(LoanDto dto) {
+        return loanMapper.toEntity(dto);
+    }
+}
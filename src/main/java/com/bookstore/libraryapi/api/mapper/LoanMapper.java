@@ -0,0 +1,24 @@
+package com.bookstore.libraryapi.api.mapper;
+
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.mapstruct.Builder;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.NullValueCheckStrategy;
+
+@Mapper(uses = BookMapper.class, builder = @Builder(disableBuilder = true),
+        nullValueCheckStrategy = NullValueCheckStrategy.ALWAYS)
+public interface LoanMapper {
+
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "email", source = "customerEmail")
+    LoanDto toDto(Loan loan);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "book", ignore = true)
+    @Mapping(target = "loanDate", ignore = true)
+    @Mapping(target = "returned", ignore = true)
+    @Mapping(target = "customerEmail", source = "email")
+    Loan toEntity(LoanDto dto);
+}
@@ -0,0 +1,44 @@
+package com.bookstore.libraryapi.api.mapper;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+
+/**
+ * Reflective fallback keeping the former ModelMapper based conversions.
+ */
+public class ModelMapperDtoMapper implements DtoMapper {
+
+    private final ModelMapper modelMapper;
+
+    public ModelMapperDtoMapper(ModelMapper modelMapper) {
+        this.modelMapper = modelMapper;
+    }
+
+    @Override
+    public BookDto toDto(Book book) {
+        return modelMapper.map(book, BookDto.class);
+    }
+
+    @Override
+    public Book toEntity(BookDto dto) {
+        return modelMapper.map(dto, Book.class);
+    }
+
+    @Override
+    public LoanDto toDto(Loan loan) {
+        LoanDto dto = modelMapper.map(loan, LoanDto.class);
+        dto.setBook(modelMapper.map(loan.getBook(), BookDto.class));
+        return dto;
+    }
+
+    @Override
+    public Loan toEntity(LoanDto dto) {
+        return Loan.builder()
+                .customer(dto.getCustomer())
+                .customerEmail(dto.getEmail())
+                .build();
+    }
+}
@@ -2,34 +2,53 @@ package com.bookstore.libraryapi.api.resource;
 
 import com.bookstore.libraryapi.api.dto.BookDto;
 
+import com.bookstore.libraryapi.api.dto.BookImportResultDTO;
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
+import com.bookstore.libraryapi.api.dto.CursorPageDTO;
 import com.bookstore.libraryapi.api.dto.LoanDto;
 import com.bookstore.libraryapi.api.exception.ApiErrors;
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
 import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.BookImportService;
+import com.bookstore.libraryapi.service.BookSearchService;
 import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.ExportService;
 
 import com.bookstore.libraryapi.service.LoanService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/books")
 @Api("Book API")
 @Slf4j
@@ -39,29 +58,75 @@ public class BookController {
     private BookService bookService;
 
     @Autowired
-    private  ModelMapper modelMapper;
+    private DtoMapper dtoMapper;
 
     @Autowired
     private LoanService loanService;
 
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Value("${application.http.cache-control.book:no-cache}")
+    private String bookCacheControl;
+
+    @Value("${application.http.cache-control.books:no-cache}")
+    private String booksCacheControl;
+
     @PostMapping()
     @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation("Creates a new book")
     public BookDto createBook(@RequestBody @Validated BookDto bookDto) {
         log.info("creating a book for isbn {}", bookDto.getIsbn());
         BookDto returnValue;
-        Book entity = modelMapper.map(bookDto, Book.class);
+        Book entity = dtoMapper.toEntity(bookDto);
         entity = bookService.save(entity);
-        returnValue = modelMapper.map(entity,BookDto.class);
+        returnValue = dtoMapper.toDto(entity);
         return returnValue;
     }
 
+    @PostMapping(value = "bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    @ApiOperation("Imports books from a JSON array or newline delimited JSON")
+    public BookImportResultDTO importBooks(HttpServletRequest request) throws IOException {
+        log.info("importing books");
+        try (MappingIterator<BookDto> books = objectMapper.readerFor(BookDto.class).readValues(request.getInputStream())) {
+            return bookImportService.importBooks(books);
+        }
+    }
+
+    @GetMapping("export")
+    @ApiOperation("Streams the whole catalogue as csv or ndjson, gzipped when accepted")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "csv") String format,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("exporting books as {}", format);
+        return Exports.stream("books", Exports.format(format), acceptEncoding, exportService::exportBooks);
+    }
+
+    @GetMapping("search")
+    @ApiOperation("Full text search over title, author and isbn, best matches first")
+    public List<BookSearchResultDTO> search(@RequestParam("q") String query,
+                                            @RequestParam(defaultValue = "20") int size) {
+        return bookSearchService.search(query, size);
+    }
+
     @GetMapping("{id}")
     @ApiOperation("Retrieves a book by book ID.")
-    public BookDto getBook(@PathVariable Long id) {
+    @ApiResponses(
+            @ApiResponse(code = 304, message = "Book unchanged since the ETag sent in If-None-Match")
+    )
+    public ResponseEntity<BookDto> getBook(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("fetching book with id {}", id);
-        return bookService.getById(id).map( book -> modelMapper.map(book, BookDto.class))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return EntityTags.conditional(ifNoneMatch, EntityTags.of(book), bookCacheControl, () -> dtoMapper.toDto(book));
     }
 
     @DeleteMapping("{id}")
@@ -78,21 +143,51 @@ public class BookController {
 
     @PutMapping("{id}")
     @ApiOperation("Update a book by book ID.")
-    public BookDto updateBook(@PathVariable Long id,  BookDto dto) {
+    @ApiResponses(
+            @ApiResponse(code = 412, message = "Book changed since the ETag sent in If-Match")
+    )
+    public ResponseEntity<BookDto> updateBook(@PathVariable Long id,  BookDto dto,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         log.info("updating book with id {}", id);
-       return bookService.getById(id).map(book -> {
-            book.setAuthor(dto.getAuthor());
-            book.setTitle(dto.getTitle());
+        Book current = bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (!EntityTags.matches(ifMatch, EntityTags.of(current))) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book was modified");
+        }
+        // the looked up book is the cached instance other requests are reading, the edit goes on a copy
+        Book book = current.toBuilder().author(dto.getAuthor()).title(dto.getTitle()).build();
+        try {
             book = bookService.update(book);
-            return modelMapper.map(book, BookDto.class);
-        }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        } catch (OptimisticLockingFailureException e) {
+            // another update committed between the lookup and this one
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Book was modified");
+        }
+        return ResponseEntity.ok().eTag(EntityTags.of(book)).body(dtoMapper.toDto(book));
     }
 
     @GetMapping
     @ApiOperation("Find books by params")
-    public Page<BookDto> find(BookDto dto, Pageable pageRequest) {
-        Book filter = modelMapper.map(dto, Book.class);
-        return bookService.find(filter, pageRequest).map(entity -> modelMapper.map(entity, BookDto.class));
+    public ResponseEntity<Page<BookDto>> find(BookDto dto, Pageable pageRequest,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Book filter = dtoMapper.toEntity(dto);
+        Page<Book> page = bookService.find(filter, pageRequest);
+        return EntityTags.conditional(ifNoneMatch, EntityTags.of(page), booksCacheControl,
+                () -> page.map(entity -> dtoMapper.toDto(entity)));
+    }
+
+    @GetMapping(params = "cursor")
+    @ApiOperation("Find books by params walking the results with a continuation cursor")
+    public CursorPageDTO<BookDto> findAfter(BookDto dto, @RequestParam String cursor,
+                                            @RequestParam(defaultValue = "20") int size) {
+        Book filter = dtoMapper.toEntity(dto);
+        Slice<Book> slice = bookService.findAfter(filter, Cursors.decode(cursor), Cursors.pageSize(size));
+        List<Book> books = slice.getContent();
+        return CursorPageDTO.<BookDto>builder()
+                .content(books.stream().map(entity -> dtoMapper.toDto(entity)).collect(Collectors.toList()))
+                .size(books.size())
+                .hasNext(slice.hasNext())
+                .nextCursor(slice.hasNext() ? Cursors.encode(books.get(books.size() - 1).getId()) : null)
+                .build();
     }
 
     @GetMapping("{id}/loans")
@@ -102,13 +197,8 @@ public class BookController {
         Page<Loan> result = loanService.getLoansByBook(book, pageable);
         List<LoanDto> list = result.getContent()
                 .stream()
-                .map( loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDto bookDTO = modelMapper.map(loanBook, BookDto.class);
-                    LoanDto loanDTO = modelMapper.map(loan, LoanDto.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
+                .map(dtoMapper::toDto)
+                .collect(Collectors.toList());
         return new PageImpl<>(list, pageable, result.getTotalElements());
 
     }
@@ -0,0 +1,83 @@
+package com.bookstore.libraryapi.api.resource;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Strong entity tags of the book resources, computed from ids and version columns only so a
+ * conditional request can be answered before anything is mapped or serialized. Shared by the
+ * servlet and the reactive controllers.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    static String of(Book book) {
+        return "\"" + book.getId() + "-" + version(book) + "\"";
+    }
+
+    /**
+     * Tag of a page of books: changes when a book of the page is updated, or when books are added
+     * or removed from the filter, which moves the total.
+     */
+    static String of(Page<Book> page) {
+        StringBuilder state = new StringBuilder().append(page.getTotalElements());
+        for (Book book : page.getContent()) {
+            state.append(';').append(book.getId()).append('-').append(version(book));
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(state.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Weak comparison of an {@code If-None-Match} header, a list of tags or {@code *}, with the current tag.
+     */
+    static boolean noneMatch(String ifNoneMatch, String etag) {
+        return ifNoneMatch == null || !contains(ifNoneMatch, etag, true);
+    }
+
+    /**
+     * Strong comparison of an {@code If-Match} header with the current tag, weak tags never match.
+     */
+    static boolean matches(String ifMatch, String etag) {
+        return ifMatch == null || contains(ifMatch, etag, false);
+    }
+
+    /**
+     * Answers 304 without a body when the client already holds {@code etag}, so the body is only
+     * mapped and serialized for clients with a stale or no copy.
+     */
+    static <T> ResponseEntity<T> conditional(String ifNoneMatch, String etag, String cacheControl, Supplier<T> body) {
+        boolean modified = noneMatch(ifNoneMatch, etag);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(modified ? HttpStatus.OK : HttpStatus.NOT_MODIFIED)
+                .eTag(etag);
+        if (!cacheControl.isEmpty()) {
+            response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return modified ? response.body(body.get()) : response.build();
+    }
+
+    private static boolean contains(String header, String etag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (weak && candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long version(Book book) {
+        return book.getVersion() == null ? 0L : book.getVersion();
+    }
+}
@@ -0,0 +1,53 @@
+package com.bookstore.libraryapi.api.resource;
+
+import com.bookstore.libraryapi.service.ExportFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the streamed responses of the export endpoints. The body is written from an MVC async
+ * thread after the handler returns, gzipped when the client accepts it.
+ */
+final class Exports {
+
+    private Exports() {
+    }
+
+    interface Exporter {
+        void export(ExportFormat format, OutputStream out) throws IOException;
+    }
+
+    static ExportFormat format(String format) {
+        for (ExportFormat candidate : ExportFormat.values()) {
+            if (candidate.name().equalsIgnoreCase(format)) {
+                return candidate;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format " + format);
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(String name, ExportFormat format, String acceptEncoding,
+                                                        Exporter exporter) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.getExtension() + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(out -> exporter.export(format, out));
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(out -> {
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+            exporter.export(format, compressed);
+            compressed.finish();
+        });
+    }
+}
@@ -1,29 +1,39 @@
 package com.bookstore.libraryapi.api.resource;
 
-import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
+import com.bookstore.libraryapi.api.dto.CursorPageDTO;
 import com.bookstore.libraryapi.api.dto.LoanDto;
 import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
 import com.bookstore.libraryapi.api.dto.ReturnedLoanDTO;
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
 import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.ExportService;
 import com.bookstore.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/loans")
 @RequiredArgsConstructor
 public class LoanController {
@@ -35,43 +45,94 @@ public class LoanController {
     private final BookService bookService;
 
     @Autowired
-    private final ModelMapper modelMapper;
+    private final DtoMapper dtoMapper;
+
+    @Autowired
+    private final ExportService exportService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody LoanDto dto) {
         Book book = bookService.getByIsbn(dto.getIsbn()).orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,"Book not found for passed isbn"));
-                Loan entity = Loan.builder()
-                        .book(book)
-                        .customer(dto.getCustomer())
-                        .loanDate(LocalDate.now())
-                        .build();
+        Loan entity = dtoMapper.toEntity(dto);
+        entity.setBook(book);
+        entity.setLoanDate(LocalDate.now());
         entity = loanService.save(entity);
         return entity.getId();
     }
 
+    @PostMapping("batch")
+    public List<BatchItemResultDTO> createBatch(@RequestBody List<LoanDto> dtos) {
+        Set<String> isbns = dtos.stream().map(LoanDto::getIsbn).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<String, Book> books = isbns.isEmpty()
+                ? Collections.emptyMap()
+                : bookService.getByIsbns(isbns).stream().collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+
+        BatchItemResultDTO[] results = new BatchItemResultDTO[dtos.size()];
+        List<Loan> loans = new ArrayList<>(dtos.size());
+        List<Integer> loanIndexes = new ArrayList<>(dtos.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            LoanDto dto = dtos.get(i);
+            Book book = books.get(dto.getIsbn());
+            if (book == null) {
+                results[i] = BatchItemResultDTO.builder().index(i).isbn(dto.getIsbn()).success(false)
+                        .message("Book not found for passed isbn").build();
+                continue;
+            }
+            Loan loan = dtoMapper.toEntity(dto);
+            loan.setBook(book);
+            loan.setLoanDate(LocalDate.now());
+            loans.add(loan);
+            loanIndexes.add(i);
+        }
+
+        List<BatchItemResultDTO> saved = loanService.saveAll(loans);
+        for (int i = 0; i < saved.size(); i++) {
+            BatchItemResultDTO result = saved.get(i);
+            result.setIndex(loanIndexes.get(i));
+            results[result.getIndex()] = result;
+        }
+        return Arrays.asList(results);
+    }
+
     @PatchMapping("{id}")
     public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto ) {
         Loan loan = loanService.getById(id).orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
-        loan.setReturned(dto.getReturned());
+        loan.setReturned(Boolean.TRUE.equals(dto.getReturned()));
         loanService.update(loan);
     }
 
+    @PatchMapping("batch")
+    public List<BatchItemResultDTO> returnBooks(@RequestBody List<LoanReturnDTO> dtos) {
+        return loanService.updateReturned(dtos);
+    }
+
     @GetMapping
     public Page<LoanDto> findLoan(LoanFilterDTO dto, Pageable pageRequest) {
         Page<Loan> result =  loanService.find(dto, pageRequest);
-        List<LoanDto> loans = result.getContent().stream().map(
-                entity ->{
-                    Book book = entity.getBook();
-                    BookDto bookdto = modelMapper.map(book, BookDto.class);
-                    LoanDto loanDto = modelMapper.map(entity, LoanDto.class);
-                    loanDto.setBook(bookdto);
-                    return loanDto;
-                }
-        ).collect(Collectors.toList());
+        List<LoanDto> loans = result.getContent().stream().map(dtoMapper::toDto).collect(Collectors.toList());
         return new PageImpl<LoanDto>(loans, pageRequest, result.getTotalElements());
 
     }
 
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportLoans(@RequestParam(defaultValue = "csv") String format,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return Exports.stream("loans", Exports.format(format), acceptEncoding, exportService::exportLoans);
+    }
+
+    @GetMapping(params = "cursor")
+    public CursorPageDTO<LoanDto> findLoanAfter(LoanFilterDTO dto, @RequestParam String cursor,
+                                                @RequestParam(defaultValue = "20") int size) {
+        Slice<Loan> slice = loanService.findAfter(dto, Cursors.decode(cursor), Cursors.pageSize(size));
+        List<Loan> loans = slice.getContent();
+        return CursorPageDTO.<LoanDto>builder()
+                .content(loans.stream().map(dtoMapper::toDto).collect(Collectors.toList()))
+                .size(loans.size())
+                .hasNext(slice.hasNext())
+                .nextCursor(slice.hasNext() ? Cursors.encode(loans.get(loans.size() - 1).getId()) : null)
+                .build();
+    }
+
 
 }
@@ -0,0 +1,37 @@
+package com.bookstore.libraryapi.api.resource;
+
+import com.bookstore.libraryapi.api.dto.LoanStatsDTO;
+import com.bookstore.libraryapi.service.LoanStatisticsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/stats")
+@Api("Loan statistics API")
+@RequiredArgsConstructor
+@Slf4j
+public class StatsController {
+
+    private final LoanStatisticsService statisticsService;
+
+    @GetMapping
+    @ApiOperation("Loan counters and rankings, as of the last snapshot")
+    public LoanStatsDTO getStatistics() {
+        return statisticsService.getStatistics();
+    }
+
+    @PostMapping("rebuild")
+    @ApiOperation("Recounts the statistics from the whole loan history")
+    public LoanStatsDTO rebuild() {
+        log.info("rebuilding loan statistics");
+        return statisticsService.rebuild();
+    }
+}
@@ -0,0 +1,86 @@
+package com.bookstore.libraryapi.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets at most {@code permits} callers hold a connection at once and queues the others in arrival
+ * order. With a virtual thread per request thousands of callers may ask for a connection together;
+ * they park cheaply on the semaphore instead of all polling the pool.
+ * <p>
+ * {@code timeoutMs} covers the whole wait, for the permit and then for the target, so the target
+ * should give up quickly: a caller holding a permit asks it again on a
+ * {@link SQLTransientConnectionException} until its time is up.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+
+    private final long timeoutMs;
+
+    public BoundedDataSource(DataSource target, int permits, long timeoutMs) {
+        super(target);
+        this.permits = new Semaphore(permits, true);
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(() -> super.getConnection(username, password));
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    private Connection getConnection(ConnectionSource target) throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        acquire(deadline);
+        try {
+            return Connections.onClose(connect(target, deadline), permits::release);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire(long deadline) throws SQLException {
+        try {
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("no connection available after " + timeoutMs + " ms, "
+                        + permits.getQueueLength() + " callers waiting");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("interrupted while waiting for a connection", e);
+        }
+    }
+
+    private static Connection connect(ConnectionSource target, long deadline) throws SQLException {
+        while (true) {
+            try {
+                return target.getConnection();
+            } catch (SQLTransientConnectionException e) {
+                if (deadline - System.nanoTime() <= 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private interface ConnectionSource {
+
+        Connection getConnection() throws SQLException;
+    }
+}
@@ -0,0 +1,41 @@
+package com.bookstore.libraryapi.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Connection wrappers shared by the data sources of this package.
+ */
+final class Connections {
+
+    private Connections() {
+    }
+
+    /**
+     * Runs {@code closed} after the connection is closed, even if closing it fails, and only once
+     * even if it is closed twice.
+     */
+    static Connection onClose(Connection connection, Runnable closed) {
+        AtomicBoolean done = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        if (done.compareAndSet(false, true)) {
+                            try {
+                                connection.close();
+                            } finally {
+                                closed.run();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
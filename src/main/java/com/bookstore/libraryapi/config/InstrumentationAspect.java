@@ -0,0 +1,69 @@
+package com.bookstore.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times the book and loan services, mail dispatch, DTO mapping and scheduled jobs. Service calls
+ * do I/O and are always timed, with percentile histograms; mapping calls take microseconds and
+ * are frequent enough that only a sample of them is timed.
+ */
+@Aspect
+public class InstrumentationAspect {
+
+    private final MeterRegistry registry;
+
+    private final double mappingSampleRate;
+
+    public InstrumentationAspect(MeterRegistry registry, double mappingSampleRate) {
+        this.registry = registry;
+        this.mappingSampleRate = mappingSampleRate;
+    }
+
+    @Around("execution(public * com.bookstore.libraryapi.service.impl.BookServiceImpl.*(..))" +
+            " || execution(public * com.bookstore.libraryapi.service.impl.LoanServiceImpl.*(..))" +
+            " || execution(* com.bookstore.libraryapi.service.EmailService.sendMails(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Timer.builder("library.service")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30)));
+    }
+
+    @Around("execution(* com.bookstore.libraryapi.api.mapper.DtoMapper.*(..))")
+    public Object timeMapping(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (mappingSampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= mappingSampleRate) {
+            return joinPoint.proceed();
+        }
+        return time(joinPoint, Timer.builder("library.mapping").tag("sampleRate", String.valueOf(mappingSampleRate)));
+    }
+
+    @Around("@annotation(org.springframework.scheduling.annotation.Scheduled)")
+    public Object timeScheduledJob(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, Timer.builder("library.scheduler.job"));
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, Timer.Builder timer) throws Throwable {
+        String exception = "none";
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer.tags("class", AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName(),
+                    "method", joinPoint.getSignature().getName(),
+                    "exception", exception)
+                    .register(registry)
+                    .record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+}
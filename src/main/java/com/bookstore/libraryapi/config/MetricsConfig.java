@@ -0,0 +1,106 @@
+package com.bookstore.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Instrumentation beyond the default {@code http.server.requests}: service, mapping and job timers,
+ * statement counts and times per request and per statement shape, and the SQL budget of a request.
+ * {@code application.metrics.sql.enabled=false} removes the JDBC proxies altogether.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public InstrumentationAspect instrumentationAspect(MeterRegistry registry,
+                                                       @Value("${application.metrics.mapping.sample-rate:0.01}") double mappingSampleRate) {
+        return new InstrumentationAspect(registry, mappingSampleRate);
+    }
+
+    /**
+     * Static, like the post processor using it, so it does not pull this configuration in early.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "application.metrics.sql.enabled", matchIfMissing = true)
+    public static SqlQueryStats sqlQueryStats() {
+        return new SqlQueryStats();
+    }
+
+    /**
+     * Ordered so it wraps the pool before the unordered post processors, such as the one adding a
+     * {@link BoundedDataSource} in front of it, which then stays the outermost data source.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "application.metrics.sql.enabled", matchIfMissing = true)
+    public static BeanPostProcessor sqlMetricsDataSourcePostProcessor(Environment environment, SqlQueryStats sqlQueryStats) {
+        return new SqlMetricsDataSourcePostProcessor(sqlQueryStats,
+                environment.getProperty("application.metrics.sql.slow-query-ms", Long.class, 100L));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "application.metrics.sql.enabled", matchIfMissing = true)
+    public MeterBinder sqlMetrics(DataSource dataSource) {
+        return registry -> {
+            try {
+                if (dataSource.isWrapperFor(SqlMetricsDataSource.class)) {
+                    dataSource.unwrap(SqlMetricsDataSource.class).bindTo(registry);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("could not bind the statement timers", e);
+            }
+        };
+    }
+
+    @Bean
+    @Profile("!reactive")
+    @ConditionalOnProperty(name = "application.metrics.sql.enabled", matchIfMissing = true)
+    public FilterRegistrationBean<SqlTraceFilter> sqlTraceFilter(MeterRegistry registry, SqlQueryStats sqlQueryStats,
+                                                                 @Value("${application.metrics.sql.budget.statements:25}") int maxStatements,
+                                                                 @Value("${application.metrics.sql.budget.time-ms:250}") long maxSqlTimeMs,
+                                                                 @Value("${application.metrics.sql.budget.fail:false}") boolean failOverBudget,
+                                                                 @Value("${application.metrics.sql.capture-rate:0.1}") double captureRate,
+                                                                 @Value("${application.metrics.slow-request-ms:500}") long slowRequestMs) {
+        SqlBudget budget = new SqlBudget(maxStatements, maxSqlTimeMs, failOverBudget);
+        FilterRegistrationBean<SqlTraceFilter> registration =
+                new FilterRegistrationBean<>(new SqlTraceFilter(registry, sqlQueryStats, budget, captureRate, slowRequestMs));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    private static class SqlMetricsDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        private final SqlQueryStats stats;
+
+        private final long slowQueryMs;
+
+        SqlMetricsDataSourcePostProcessor(SqlQueryStats stats, long slowQueryMs) {
+            this.stats = stats;
+            this.slowQueryMs = slowQueryMs;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource) || bean instanceof SqlMetricsDataSource) {
+                return bean;
+            }
+            return new SqlMetricsDataSource((DataSource) bean, stats, slowQueryMs);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
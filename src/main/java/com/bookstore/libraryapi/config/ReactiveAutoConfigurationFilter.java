@@ -0,0 +1,54 @@
+package com.bookstore.libraryapi.config;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.r2dbc.R2dbcTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Leaves the R2DBC auto-configuration out unless the {@code reactive} profile is active: the servlet
+ * stack runs from the reactive build as well, and Boot drops its JDBC {@code DataSource} as soon as
+ * an R2DBC {@code ConnectionFactory} exists. The repositories and the transaction manager are never
+ * auto-configured, the reactive stack brings its own. Unlike {@code spring.autoconfigure.exclude},
+ * this leaves the property to the deployments.
+ * <p>
+ * Registered in every build, so switching Maven profiles never leaves a registration behind without
+ * its class; it only names classes of {@code spring-boot-autoconfigure}.
+ */
+public class ReactiveAutoConfigurationFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    private static final Set<String> REACTIVE_ONLY = new HashSet<>(Arrays.asList(
+            R2dbcAutoConfiguration.class.getName(),
+            R2dbcDataAutoConfiguration.class.getName()));
+
+    private static final Set<String> NEVER = new HashSet<>(Arrays.asList(
+            R2dbcRepositoriesAutoConfiguration.class.getName(),
+            R2dbcTransactionManagerAutoConfiguration.class.getName()));
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean reactive = environment.acceptsProfiles(Profiles.of("reactive"));
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            String name = autoConfigurationClasses[i];
+            matches[i] = !NEVER.contains(name) && (reactive || !REACTIVE_ONLY.contains(name));
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bookstore.libraryapi.config;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Read-your-writes window of the client behind the current request thread. While it is open the
+ * {@link ReplicaRoutingDataSource} sends the read-only transactions to the primary as well, so a
+ * client does not read its own write back from a replica that has not replayed it yet.
+ * <p>
+ * The window is opened by the first write of a request and carried to the next requests of the
+ * same client by the {@link ReadYourWritesFilter}, which is told through {@code windowOpened}.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private final long windowMs;
+
+    private final LongConsumer windowOpened;
+
+    private long pinnedUntil;
+
+    private boolean written;
+
+    private ReadYourWrites(long windowMs, long pinnedUntil, LongConsumer windowOpened) {
+        this.windowMs = windowMs;
+        this.pinnedUntil = pinnedUntil;
+        this.windowOpened = windowOpened;
+    }
+
+    /**
+     * @param pinnedUntil end of a window opened by an earlier request of the client, in epoch millis, 0 if none
+     */
+    public static ReadYourWrites start(long windowMs, long pinnedUntil, LongConsumer windowOpened) {
+        ReadYourWrites window = new ReadYourWrites(windowMs, pinnedUntil, windowOpened);
+        CURRENT.set(window);
+        return window;
+    }
+
+    public static ReadYourWrites current() {
+        return CURRENT.get();
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    public boolean isPinned() {
+        return System.currentTimeMillis() < pinnedUntil;
+    }
+
+    /**
+     * Opens the window on the first write of the request; later writes of the same request keep it.
+     */
+    void written() {
+        if (written) {
+            return;
+        }
+        written = true;
+        pinnedUntil = System.currentTimeMillis() + windowMs;
+        windowOpened.accept(pinnedUntil);
+    }
+}
@@ -0,0 +1,66 @@
+package com.bookstore.libraryapi.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Keeps the {@link ReadYourWrites} window of a client between its requests in a cookie holding the
+ * end of the window in epoch millis. The cookie is set as soon as the request writes, while the
+ * response is not committed yet; it expires with the window, and a value further away than one
+ * window is capped so a client cannot pin itself to the primary.
+ * <p>
+ * Clients that drop cookies, or that write through one instance and read through another with a
+ * skewed clock, only get the guarantee within a request.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "library-read-primary";
+
+    private final long windowMs;
+
+    public ReadYourWritesFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadYourWrites window = ReadYourWrites.start(windowMs, pinnedUntil(request),
+                until -> sendCookie(response, until));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            window.end();
+        }
+    }
+
+    private long pinnedUntil(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Math.min(Long.parseLong(cookie.getValue()), System.currentTimeMillis() + windowMs);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void sendCookie(HttpServletResponse response, long until) {
+        if (response.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE, String.valueOf(until));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (windowMs + 999) / 1000));
+        response.addCookie(cookie);
+    }
+}
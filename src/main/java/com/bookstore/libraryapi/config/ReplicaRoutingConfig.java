@@ -0,0 +1,125 @@
+package com.bookstore.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, active once {@code application.datasource.replica.urls} lists at least one. The
+ * {@code DataSource} becomes a {@link ReplicaRoutingDataSource} over a primary pool built from the usual
+ * {@code spring.datasource} keys and one pool per replica, tuned by {@code spring.datasource.hikari}
+ * and then by {@code application.datasource.replica.hikari}.
+ * <p>
+ * The replicas are expected to hold the primary's schema through replication: the migrations only
+ * run on the primary.
+ */
+@Slf4j
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty("application.datasource.replica.urls")
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 @Value("${application.datasource.replica.urls}") String[] urls,
+                                 @Value("${application.datasource.replica.username:}") String username,
+                                 @Value("${application.datasource.replica.password:}") String password,
+                                 @Value("${application.datasource.replica.balancing:round-robin}") String balancing) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(properties.initializeDataSourceBuilder(), binder, "primary");
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            DataSourceBuilder<?> builder = DataSourceBuilder.create(properties.getClassLoader())
+                    .url(url.trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(username.isEmpty() ? properties.determinePassword() : password);
+            HikariDataSource replica = pool(builder, binder, "replica-" + replicas.size());
+            binder.bind("application.datasource.replica.hikari", Bindable.ofInstance(replica));
+            replicas.add(replica);
+        }
+        log.info("routing read-only transactions to {} replicas, {}", replicas.size(), balancing);
+        return new ReplicaRoutingDataSource(primary, replicas, ReplicaRoutingDataSource.Balancing.of(balancing));
+    }
+
+    /**
+     * By default Hibernate holds on to a connection until the entity manager closes, which with open
+     * in view is the end of the request: a write following a read-only transaction in the same request
+     * would reuse the replica connection. Released after each transaction, the next one is routed anew.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    /**
+     * Boot's adapter, except that the transactions leave the connection settings alone. Spring would
+     * mark the connection of a read-only transaction read-only and reset it when the transaction ends,
+     * but released after the transaction, the connection is no longer the one it prepared and the
+     * reset is skipped with a warning. The routing goes by the transaction, not by the connection.
+     */
+    @Bean
+    public JpaVendorAdapter jpaVendorAdapter(JpaProperties properties) {
+        HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+        adapter.setShowSql(properties.isShowSql());
+        if (properties.getDatabase() != null) {
+            adapter.setDatabase(properties.getDatabase());
+        }
+        if (properties.getDatabasePlatform() != null) {
+            adapter.setDatabasePlatform(properties.getDatabasePlatform());
+        }
+        adapter.setGenerateDdl(properties.isGenerateDdl());
+        adapter.getJpaDialect().setPrepareConnection(false);
+        return adapter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${application.datasource.replica.read-your-writes-ms:5000}") long windowMs) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(windowMs));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(DataSource dataSource) {
+        return registry -> {
+            try {
+                if (dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+                    dataSource.unwrap(ReplicaRoutingDataSource.class).bindTo(registry);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("could not bind the routing metrics", e);
+            }
+        };
+    }
+
+    private static HikariDataSource pool(DataSourceBuilder<?> builder, Binder binder, String poolName) {
+        HikariDataSource pool = builder.type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        return pool;
+    }
+}
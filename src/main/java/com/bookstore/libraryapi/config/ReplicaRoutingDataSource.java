@@ -0,0 +1,234 @@
+package com.bookstore.libraryapi.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions to one of the replicas and everything else to the
+ * primary: read-write transactions, and statements run outside a transaction, such as the migrations
+ * and the derived queries of the repositories. A read-only transaction goes to the primary as well
+ * while the {@link ReadYourWrites} window of its client is open, and when the chosen replica fails to
+ * hand out a connection.
+ * <p>
+ * The connection is only fetched by the first statement, which is after the transaction manager has
+ * marked the transaction read-only; until then the lazy proxy records the connection settings.
+ * The replicas are picked in turn or, with {@link Balancing#LEAST_CONNECTIONS}, by the fewest
+ * connections currently handed out through this data source.
+ * <p>
+ * Reads whose result outlives the request, such as the ones filling a cache that the writes evict,
+ * go through {@link #onPrimary}: read from a lagging replica, the row a write just evicted would be
+ * cached again in its old state.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements MeterBinder, AutoCloseable {
+
+    public enum Balancing {
+        ROUND_ROBIN, LEAST_CONNECTIONS;
+
+        /**
+         * Accepts the property spelling, {@code round-robin} or {@code least-connections}.
+         */
+        public static Balancing of(String name) {
+            return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+    }
+
+    enum Route {
+        PRIMARY, REPLICA, READ_YOUR_WRITES, FALLBACK;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private static final ThreadLocal<Boolean> PRIMARY_READ = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final Balancing balancing;
+
+    private final AtomicInteger[] active;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile Counter[] routes;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Balancing balancing) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("at least one replica is needed");
+        }
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas);
+        this.balancing = balancing;
+        this.active = new AtomicInteger[replicas.size()];
+        for (int i = 0; i < active.length; i++) {
+            active[i] = new AtomicInteger();
+        }
+        setTargetDataSource(new Router());
+    }
+
+    /**
+     * Runs the read on the primary, even within a read-only transaction, without opening the
+     * {@link ReadYourWrites} window. Without replicas the read runs as it is.
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (PRIMARY_READ.get() != null) {
+            return read.get();
+        }
+        PRIMARY_READ.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_READ.remove();
+        }
+    }
+
+    public int getActiveCount(int replica) {
+        return active[replica].get();
+    }
+
+    /**
+     * Closes the primary and the replicas, the ones that can be closed such as the pools.
+     */
+    @Override
+    public void close() {
+        close(primary);
+        replicas.forEach(ReplicaRoutingDataSource::close);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Counter[] counters = new Counter[Route.values().length];
+        for (Route route : Route.values()) {
+            counters[route.ordinal()] = Counter.builder("library.jdbc.routing").tag("route", route.tag()).register(registry);
+        }
+        routes = counters;
+        for (int i = 0; i < active.length; i++) {
+            Gauge.builder("library.jdbc.replica.connections.active", active[i], AtomicInteger::get)
+                    .tag("replica", String.valueOf(i))
+                    .register(registry);
+        }
+    }
+
+    private Connection route(String username, String password) throws SQLException {
+        ReadYourWrites window = ReadYourWrites.current();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (window != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                window.written();
+            }
+            count(Route.PRIMARY);
+            return connect(primary, username, password);
+        }
+        if (PRIMARY_READ.get() != null) {
+            count(Route.PRIMARY);
+            return connect(primary, username, password);
+        }
+        if (window != null && window.isPinned()) {
+            count(Route.READ_YOUR_WRITES);
+            return connect(primary, username, password);
+        }
+        int replica = choose();
+        Connection connection;
+        try {
+            connection = connect(replicas.get(replica), username, password);
+        } catch (SQLException e) {
+            log.warn("replica {} did not hand out a connection, reading from the primary: {}", replica, e.getMessage());
+            count(Route.FALLBACK);
+            return connect(primary, username, password);
+        }
+        count(Route.REPLICA);
+        return track(connection, active[replica]);
+    }
+
+    /**
+     * Starts from the next replica in turn, so replicas with the same count still share the load.
+     */
+    private int choose() {
+        int first = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (balancing == Balancing.ROUND_ROBIN) {
+            return first;
+        }
+        int best = first;
+        for (int i = 1; i < replicas.size(); i++) {
+            int candidate = (first + i) % replicas.size();
+            if (active[candidate].get() < active[best].get()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private void count(Route route) {
+        Counter[] counters = routes;
+        if (counters != null) {
+            counters[route.ordinal()].increment();
+        }
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) dataSource).close();
+            } catch (Exception e) {
+                log.warn("could not close data source {}: {}", dataSource, e.getMessage());
+            }
+        }
+    }
+
+    private static Connection connect(DataSource dataSource, String username, String password) throws SQLException {
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+    }
+
+    /**
+     * Counts the connection as active until it is closed.
+     */
+    private static Connection track(Connection connection, AtomicInteger active) {
+        active.incrementAndGet();
+        return Connections.onClose(connection, active::decrementAndGet);
+    }
+
+    /**
+     * Target of the lazy proxy. Unwraps to the primary, so the pool metrics still find its pool; the
+     * post processors wrapping the pool check for the router first.
+     */
+    private class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return route(null, null);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return route(username, password);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || primary.isWrapperFor(iface);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return iface.isInstance(this) ? (T) this : primary.unwrap(iface);
+        }
+    }
+}
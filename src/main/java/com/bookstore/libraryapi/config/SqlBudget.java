@@ -0,0 +1,36 @@
+package com.bookstore.libraryapi.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Most statements and SQL time a single request may use. With {@code fail} set a request over it
+ * ends in an error instead of a warning, which is meant for tests: an N+1 added to an endpoint then
+ * breaks the build instead of reaching production. Zero disables a limit.
+ */
+@Getter
+@AllArgsConstructor
+public class SqlBudget {
+
+    private final int maxStatements;
+
+    private final long maxSqlTimeMs;
+
+    private final boolean fail;
+
+    /**
+     * Why the request is over the budget, or {@code null} when it is within it.
+     */
+    public String check(SqlTrace trace) {
+        if (maxStatements > 0 && trace.getCount() > maxStatements) {
+            return trace.getCount() + " statements, budget " + maxStatements;
+        }
+        long sqlTimeMs = TimeUnit.NANOSECONDS.toMillis(trace.getNanos());
+        if (maxSqlTimeMs > 0 && sqlTimeMs > maxSqlTimeMs) {
+            return sqlTimeMs + " ms of SQL, budget " + maxSqlTimeMs + " ms";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.bookstore.libraryapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@code execute*} call of the statements created through it, into the
+ * {@code library.jdbc.statements} timer and into the {@link SqlTrace} of the calling thread, if any.
+ * Covers JPA, JdbcTemplate and Flyway alike since they all get their connections here. Each statement
+ * is also added to its shape in the {@link SqlQueryStats}, and logged when slower than {@code slowQueryMs}.
+ * <p>
+ * The timers are bound once the registry exists, which is after the data source is created;
+ * statements run before that, such as the migrations, only reach the trace.
+ */
+@Slf4j
+public class SqlMetricsDataSource extends DelegatingDataSource implements MeterBinder {
+
+    private final SqlQueryStats stats;
+
+    private final long slowQueryNanos;
+
+    private volatile Timer queries;
+
+    private volatile Timer updates;
+
+    public SqlMetricsDataSource(DataSource target, SqlQueryStats stats, long slowQueryMs) {
+        super(target);
+        this.stats = stats;
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+    }
+
+    public SqlQueryStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        queries = Timer.builder("library.jdbc.statements").tag("type", "query").register(registry);
+        updates = Timer.builder("library.jdbc.statements").tag("type", "update").register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(super.getConnection(username, password));
+    }
+
+    private Connection instrument(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            // identity of the proxy, so transaction managers can match the connection they handed out
+            if (method.getName().equals("equals")) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement && isStatementFactory(method)) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return instrument((Statement) result, method.getReturnType(), sql);
+            }
+            return result;
+        });
+    }
+
+    private Statement instrument(Statement statement, Class<?> type, String preparedSql) {
+        return (Statement) proxy(type, statement, (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : "batch";
+                boolean query = method.getName().equals("executeQuery")
+                        || sql.regionMatches(true, 0, "select", 0, 6);
+                Timer timer = query ? queries : updates;
+                if (timer != null) {
+                    timer.record(elapsed, TimeUnit.NANOSECONDS);
+                }
+                String shape = stats.shapeOf(sql);
+                stats.record(shape, elapsed);
+                if (elapsed > slowQueryNanos) {
+                    log.warn("slow statement took {} ms: {}", TimeUnit.NANOSECONDS.toMillis(elapsed), sql);
+                }
+                SqlTrace trace = SqlTrace.current();
+                if (trace != null) {
+                    trace.record(sql, shape, elapsed);
+                }
+            }
+        });
+    }
+
+    private static boolean isStatementFactory(Method method) {
+        Class<?> type = method.getReturnType();
+        return type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
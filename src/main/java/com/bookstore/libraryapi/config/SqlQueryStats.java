@@ -0,0 +1,207 @@
+package com.bookstore.libraryapi.config;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Statements grouped by shape, their SQL with literals and {@code in} lists folded, so the same
+ * query run with other values lands in the same entry. Keeps at most {@link #MAX_SHAPES} shapes,
+ * later ones are counted under {@link #OTHER}, and the last {@link #MAX_OVER_BUDGET} requests
+ * over the SQL budget.
+ */
+public class SqlQueryStats {
+
+    static final int MAX_SHAPES = 500;
+
+    static final int MAX_OVER_BUDGET = 20;
+
+    static final String OTHER = "(other)";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?\\b");
+
+    private static final Pattern IN_LIST = Pattern.compile("\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final ConcurrentMap<String, String> shapeOfSql = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, ShapeCounters> shapes = new ConcurrentHashMap<>();
+
+    private final Deque<OverBudgetRequest> overBudget = new ArrayDeque<>();
+
+    private final LongAdder overBudgetCount = new LongAdder();
+
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("in (...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * Shape of the statement; prepared statements repeat the same few strings, so the shapes of
+     * those are remembered instead of running the patterns on every execution.
+     */
+    public String shapeOf(String sql) {
+        String shape = shapeOfSql.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+        shape = normalize(sql);
+        if (shapeOfSql.size() < MAX_SHAPES * 4) {
+            shapeOfSql.put(sql, shape);
+        }
+        return shape;
+    }
+
+    public void record(String shape, long elapsedNanos) {
+        shape(shape).record(elapsedNanos);
+    }
+
+    /**
+     * Keeps, for each shape the request ran, the most times a single request ran it: a shape run
+     * once per row of a listing shows up here long before it shows up in the totals.
+     */
+    public void requestEnded(String method, String uri, SqlTrace trace) {
+        trace.getShapeCounts().forEach((shape, count) -> shape(shape).requestEnded(count, method + " " + uri));
+    }
+
+    public void overBudget(String method, String uri, SqlTrace trace, String reason) {
+        overBudgetCount.increment();
+        OverBudgetRequest request = new OverBudgetRequest(method + " " + uri, trace.getCount(),
+                TimeUnit.NANOSECONDS.toMillis(trace.getNanos()), reason, System.currentTimeMillis());
+        synchronized (overBudget) {
+            if (overBudget.size() == MAX_OVER_BUDGET) {
+                overBudget.removeFirst();
+            }
+            overBudget.addLast(request);
+        }
+    }
+
+    /**
+     * Sorts copies of the shapes: the requests keep counting while the ranking is built.
+     */
+    public List<Shape> top(Comparator<Shape> order, int limit) {
+        return shapes.values().stream().map(ShapeCounters::snapshot).sorted(order).limit(limit).collect(Collectors.toList());
+    }
+
+    public long getOverBudgetCount() {
+        return overBudgetCount.sum();
+    }
+
+    public List<OverBudgetRequest> getOverBudget() {
+        synchronized (overBudget) {
+            return new ArrayList<>(overBudget);
+        }
+    }
+
+    public void reset() {
+        shapes.clear();
+        overBudgetCount.reset();
+        synchronized (overBudget) {
+            overBudget.clear();
+        }
+    }
+
+    private ShapeCounters shape(String sql) {
+        ShapeCounters shape = shapes.get(sql);
+        if (shape != null) {
+            return shape;
+        }
+        return shapes.computeIfAbsent(shapes.size() < MAX_SHAPES ? sql : OTHER, ShapeCounters::new);
+    }
+
+    /**
+     * A shape as it stood when {@link #top} copied it.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class Shape {
+
+        public static final Comparator<Shape> BY_TIME = Comparator.comparingLong(Shape::getTotalNanos).reversed();
+
+        public static final Comparator<Shape> BY_COUNT = Comparator.comparingLong(Shape::getCount).reversed();
+
+        public static final Comparator<Shape> BY_REPEATS = Comparator.comparingLong(Shape::getMaxPerRequest).reversed()
+                .thenComparing(BY_TIME);
+
+        private final String sql;
+
+        private final long count;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+        private final int maxPerRequest;
+
+        private final String maxPerRequestEndpoint;
+    }
+
+    private static final class ShapeCounters {
+
+        private final String sql;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private int maxPerRequest;
+
+        private String maxPerRequestEndpoint;
+
+        ShapeCounters(String sql) {
+            this.sql = sql;
+        }
+
+        void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+
+        synchronized void requestEnded(int count, String endpoint) {
+            if (count > maxPerRequest) {
+                maxPerRequest = count;
+                maxPerRequestEndpoint = endpoint;
+            }
+        }
+
+        synchronized Shape snapshot() {
+            return new Shape(sql, count.sum(), totalNanos.sum(), maxNanos.get(), maxPerRequest, maxPerRequestEndpoint);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class OverBudgetRequest {
+
+        private final String endpoint;
+
+        private final int statements;
+
+        private final long sqlTimeMs;
+
+        private final String reason;
+
+        private final long timestamp;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bookstore.libraryapi.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statements run by the current request thread. The count and time are always kept; the SQL text
+ * only for sampled requests and up to {@link #MAX_CAPTURED} statements, so an N+1 request cannot
+ * hold thousands of strings.
+ */
+public final class SqlTrace {
+
+    static final int MAX_CAPTURED = 50;
+
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    private final List<String> statements;
+
+    private final Map<String, Integer> shapeCounts = new HashMap<>();
+
+    private int count;
+
+    private long nanos;
+
+    private SqlTrace(boolean capture) {
+        this.statements = capture ? new ArrayList<>() : null;
+    }
+
+    public static SqlTrace start(boolean capture) {
+        SqlTrace trace = new SqlTrace(capture);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public static SqlTrace current() {
+        return CURRENT.get();
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    void record(String sql, String shape, long elapsedNanos) {
+        count++;
+        nanos += elapsedNanos;
+        shapeCounts.merge(shape, 1, Integer::sum);
+        if (statements != null && statements.size() < MAX_CAPTURED) {
+            statements.add(sql + " (" + elapsedNanos / 1000 + " us)");
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public List<String> getStatements() {
+        return statements == null ? Collections.emptyList() : statements;
+    }
+
+    /**
+     * How many times the request ran each statement shape, see {@link SqlQueryStats#shapeOf(String)}.
+     */
+    public Map<String, Integer> getShapeCounts() {
+        return shapeCounts;
+    }
+
+    public Map.Entry<String, Integer> getMostRepeated() {
+        return shapeCounts.entrySet().stream().max(Map.Entry.comparingByValue()).orElse(null);
+    }
+}
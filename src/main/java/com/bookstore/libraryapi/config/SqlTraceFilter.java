@@ -0,0 +1,94 @@
+package com.bookstore.libraryapi.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how many statements each request ran and how long they took, per endpoint, and logs
+ * the SQL of slow requests and of requests over the {@link SqlBudget}. Statements are only captured
+ * for a sample of the requests; a request outside the sample is still logged with its counts and
+ * the statement it repeated the most.
+ */
+@Slf4j
+public class SqlTraceFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    private final SqlQueryStats stats;
+
+    private final SqlBudget budget;
+
+    private final double captureRate;
+
+    private final long slowRequestNanos;
+
+    public SqlTraceFilter(MeterRegistry registry, SqlQueryStats stats, SqlBudget budget, double captureRate, long slowRequestMs) {
+        this.registry = registry;
+        this.stats = stats;
+        this.budget = budget;
+        this.captureRate = captureRate;
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMs);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlTrace trace = SqlTrace.start(captureRate >= 1 || ThreadLocalRandom.current().nextDouble() < captureRate);
+        long start = System.nanoTime();
+        String overBudget;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            trace.end();
+            overBudget = report(request, trace, System.nanoTime() - start);
+        }
+        if (overBudget != null && budget.isFail()) {
+            throw new IllegalStateException("request " + request.getMethod() + " " + request.getRequestURI()
+                    + " is over the SQL budget: " + overBudget);
+        }
+    }
+
+    private String report(HttpServletRequest request, SqlTrace trace, long elapsed) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("library.http.sql.statements")
+                .tags("method", request.getMethod(), "uri", uri)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(1000d)
+                .register(registry)
+                .record(trace.getCount());
+        Timer.builder("library.http.sql.time")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(registry)
+                .record(trace.getNanos(), TimeUnit.NANOSECONDS);
+        stats.requestEnded(request.getMethod(), uri, trace);
+        String overBudget = budget.check(trace);
+        if (overBudget != null) {
+            stats.overBudget(request.getMethod(), uri, trace, overBudget);
+        }
+        if (overBudget != null || elapsed > slowRequestNanos) {
+            Map.Entry<String, Integer> mostRepeated = trace.getMostRepeated();
+            log.warn("{} request {} {} took {} ms, {} statements in {} ms{}{}",
+                    overBudget != null ? "over budget (" + overBudget + ")" : "slow",
+                    request.getMethod(), request.getRequestURI(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    trace.getCount(), TimeUnit.NANOSECONDS.toMillis(trace.getNanos()),
+                    mostRepeated == null || mostRepeated.getValue() < 2 ? ""
+                            : ", most repeated " + mostRepeated.getValue() + " times: " + mostRepeated.getKey(),
+                    trace.getStatements().isEmpty() ? "" : ":\n  " + String.join("\n  ", trace.getStatements()));
+        }
+        return overBudget;
+    }
+}
@@ -0,0 +1,132 @@
+package com.bookstore.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs servlet requests, mail dispatch and scheduled jobs on virtual threads, active with the
+ * {@code virtual-threads} profile on JDK 21 or newer. Blocked requests no longer hold one of the
+ * Tomcat workers, so the limit on concurrent slow clients becomes the JDBC pool, which is guarded
+ * by a {@link BoundedDataSource} of the same size. With read replicas the
+ * {@link ReplicaRoutingDataSource} is left unguarded: a guard sized after one pool would hold back
+ * the others, and each pool keeps its own timeout.
+ * <p>
+ * Build with the {@code virtual-threads} Maven profile: the Tomcat of the Spring Boot release holds
+ * a monitor for the whole request, which pins every virtual thread to its carrier.
+ */
+@Slf4j
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig implements SchedulingConfigurer {
+
+    public static final String MAIL_DISPATCH_THREAD_FACTORY = "mailDispatchThreadFactory";
+
+    private static final int SCHEDULER_POOL_SIZE = 4;
+
+    /**
+     * The lowest timeout Hikari accepts.
+     */
+    private static final long POOL_CONNECTION_TIMEOUT_MS = 250;
+
+    public VirtualThreadConfig() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("the virtual-threads profile needs JDK 21 or newer, running on " +
+                    System.getProperty("java.version"));
+        }
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor() {
+        return VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(ExecutorService requestExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    @Bean(MAIL_DISPATCH_THREAD_FACTORY)
+    public ThreadFactory mailDispatchThreadFactory() {
+        return VirtualThreads.factory("mail-dispatch-");
+    }
+
+    /**
+     * The default scheduler has a single platform thread, so a long late loans run delays the outbox
+     * drain and the search commits. A few virtual threads let them run side by side.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService schedulingExecutor() {
+        return Executors.newScheduledThreadPool(SCHEDULER_POOL_SIZE, VirtualThreads.factory("scheduling-"));
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.setScheduler(new ConcurrentTaskScheduler(schedulingExecutor()));
+    }
+
+    @Bean
+    public MeterBinder boundedDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof BoundedDataSource) {
+                Gauge.builder("library.jdbc.connections.waiting", (BoundedDataSource) dataSource,
+                        BoundedDataSource::getWaitingCount).register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor boundedDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                HikariDataSource hikari = hikari(bean);
+                if (hikari == null) {
+                    return bean;
+                }
+                // the guard waits for the configured timeout, the pool only for a connection being reopened
+                long timeout = hikari.getConnectionTimeout();
+                hikari.setConnectionTimeout(POOL_CONNECTION_TIMEOUT_MS);
+                log.info("guarding data source {} with {} permits, {} ms to get a connection", beanName,
+                        hikari.getMaximumPoolSize(), timeout);
+                return new BoundedDataSource((DataSource) bean, hikari.getMaximumPoolSize(), timeout);
+            }
+        };
+    }
+
+    /**
+     * The pool itself or the pool behind a wrapper, such as the {@link SqlMetricsDataSource}. The
+     * router unwraps to its primary pool, but routes to the replica pools as well.
+     */
+    private static HikariDataSource hikari(Object bean) {
+        if (!(bean instanceof DataSource) || bean instanceof BoundedDataSource) {
+            return null;
+        }
+        try {
+            DataSource dataSource = (DataSource) bean;
+            if (dataSource.isWrapperFor(ReplicaRoutingDataSource.class)) {
+                return null;
+            }
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -9,16 +9,18 @@ import javax.persistence.*;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table
+@Table(indexes = @Index(name = "idx_book_active_loan", columnList = "active_loan_id"),
+        uniqueConstraints = @UniqueConstraint(name = "ux_book_isbn", columnNames = "isbn"))
 public class Book {
 
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -30,6 +32,22 @@ public class Book {
     @Column
     private String isbn;
 
+    /**
+     * Id of the loan currently holding the book, null when the book is available.
+     * Only written through the compare-and-set queries of {@link com.bookstore.libraryapi.model.repository.BookRepository},
+     * never by entity updates, so a stale copy of the book cannot overwrite it.
+     */
+    @Column(name = "active_loan_id", insertable = false, updatable = false)
+    private Long activeLoanId;
+
+    /**
+     * Bumped by every entity update, never by the active loan queries. Exposed as the HTTP entity tag
+     * of the book and checked on merge, so an update based on a stale copy fails instead of overwriting.
+     */
+    @Version
+    @Column
+    private Long version;
+
     @OneToMany(mappedBy = "book", fetch = FetchType.LAZY)
     private List<Loan> loans;
 }
@@ -0,0 +1,41 @@
+package com.bookstore.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class JobLease {
+    @Id
+    @Column
+    private String name;
+
+    @Column
+    private String owner;
+
+    @Column(name = "leased_until")
+    private LocalDateTime leasedUntil;
+
+    @Column(name = "run_date")
+    private LocalDate runDate;
+
+    @Column(name = "last_processed_id")
+    private Long lastProcessedId;
+
+    @Column(name = "processed_count")
+    private Long processedCount;
+
+    @Column
+    private Boolean completed;
+}
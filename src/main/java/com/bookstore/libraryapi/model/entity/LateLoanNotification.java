@@ -0,0 +1,50 @@
+package com.bookstore.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"id_loan", "notification_date"}))
+public class LateLoanNotification {
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Column(name = "id_loan")
+    private Long loanId;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column(name = "notification_date")
+    private LocalDate notificationDate;
+
+    @Column
+    @Enumerated(EnumType.STRING)
+    private NotificationStatus status;
+
+    @Column(name = "claim_token")
+    private String claimToken;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+}
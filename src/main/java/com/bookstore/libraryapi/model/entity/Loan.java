@@ -13,9 +13,15 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_loan_book", columnList = "id_book"),
+        @Index(name = "idx_loan_customer", columnList = "customer"),
+        @Index(name = "idx_loan_returned_loan_date", columnList = "returned, loanDate")
+})
 public class Loan {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -32,5 +38,6 @@ public class Loan {
     private LocalDate loanDate;
 
     @Column
-    private Boolean returned;
+    @Builder.Default
+    private Boolean returned = false;
 }
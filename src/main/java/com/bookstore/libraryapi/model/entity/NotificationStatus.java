@@ -0,0 +1,8 @@
+package com.bookstore.libraryapi.model.entity;
+
+public enum NotificationStatus {
+    PENDING,
+    CLAIMED,
+    SENT,
+    FAILED
+}
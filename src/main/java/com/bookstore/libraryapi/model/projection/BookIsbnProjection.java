@@ -0,0 +1,7 @@
+package com.bookstore.libraryapi.model.projection;
+
+public interface BookIsbnProjection {
+    Long getId();
+
+    String getIsbn();
+}
@@ -0,0 +1,13 @@
+package com.bookstore.libraryapi.model.projection;
+
+import java.time.LocalDate;
+
+public interface LateLoanProjection {
+    Long getId();
+
+    String getCustomer();
+
+    String getCustomerEmail();
+
+    LocalDate getLoanDate();
+}
@@ -1,13 +1,53 @@
 package com.bookstore.libraryapi.model.repository;
 
 import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.projection.BookIsbnProjection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long> {
-    boolean existsByIsbn(String isbn);
-
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom {
     Optional<Book> findByIsbn(String isbn);
 
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    @Query(value = "select b.isbn from Book b where b.isbn in :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query(value = "select b.id as id, b.isbn as isbn from Book b where b.id > :lastId order by b.id")
+    List<BookIsbnProjection> findIsbnsAfter(@Param("lastId") Long lastId, Pageable pageable);
+
+    @Query(value = "select b from Book b where b.id > :lastId " +
+            "and ( :title is null or lower(b.title) like :title escape '\\' ) " +
+            "and ( :author is null or lower(b.author) like :author escape '\\' ) " +
+            "and ( :isbn is null or lower(b.isbn) like :isbn escape '\\' ) " +
+            "order by b.id")
+    Slice<Book> findAfter(@Param("lastId") Long lastId,
+                          @Param("title") String title,
+                          @Param("author") String author,
+                          @Param("isbn") String isbn,
+                          Pageable pageable);
+
+    @Query(value = "select b.activeLoanId from Book b where b.id = :bookId")
+    Optional<Long> findActiveLoanId(@Param("bookId") Long bookId);
+
+    @Modifying
+    @Query(value = "update Book b set b.activeLoanId = :loanId " +
+            "where b.id = :bookId and ( b.activeLoanId is null or b.activeLoanId = :loanId )")
+    int acquireActiveLoan(@Param("bookId") Long bookId, @Param("loanId") Long loanId);
+
+    @Modifying
+    @Query(value = "update Book b set b.activeLoanId = null where b.id = :bookId and b.activeLoanId = :loanId")
+    int releaseActiveLoan(@Param("bookId") Long bookId, @Param("loanId") Long loanId);
+
+    @Modifying
+    @Query(value = "update Book b set b.activeLoanId = null where b.activeLoanId in :loanIds")
+    int releaseActiveLoans(@Param("loanIds") Collection<Long> loanIds);
 }
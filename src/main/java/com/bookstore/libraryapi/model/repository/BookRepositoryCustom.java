@@ -0,0 +1,9 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.Loan;
+
+import java.util.List;
+
+public interface BookRepositoryCustom {
+    int[] acquireActiveLoans(List<Loan> loans);
+}
@@ -0,0 +1,29 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BookRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Batched version of {@link BookRepository#acquireActiveLoan}: one JDBC batch for all
+     * loans, returning the update count of each one (0 when the book was already lent).
+     */
+    @Override
+    public int[] acquireActiveLoans(List<Loan> loans) {
+        return jdbcTemplate.batchUpdate(
+                "update book set active_loan_id = ? where id = ? and (active_loan_id is null or active_loan_id = ?)",
+                loans.stream()
+                        .map(loan -> new Object[]{loan.getId(), loan.getBook().getId(), loan.getId()})
+                        .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLease l set l.owner = :owner, l.leasedUntil = :leasedUntil " +
+            "where l.name = :name and ( l.leasedUntil < :now or l.owner = :owner )")
+    int acquire(@Param("name") String name,
+                @Param("owner") String owner,
+                @Param("now") LocalDateTime now,
+                @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLease l set l.owner = :owner, l.leasedUntil = :leasedUntil " +
+            "where l.name = :name and l.leasedUntil < :now and l.runDate is not null and l.completed = false")
+    int takeOver(@Param("name") String name,
+                 @Param("owner") String owner,
+                 @Param("now") LocalDateTime now,
+                 @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLease l set l.runDate = :runDate, l.lastProcessedId = 0, l.processedCount = 0, " +
+            "l.completed = false " +
+            "where l.name = :name and l.owner = :owner and ( l.runDate is null or l.runDate <> :runDate )")
+    int resetForRun(@Param("name") String name, @Param("owner") String owner, @Param("runDate") LocalDate runDate);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLease l set l.lastProcessedId = :lastProcessedId, l.processedCount = :processedCount, " +
+            "l.leasedUntil = :leasedUntil where l.name = :name and l.owner = :owner")
+    int updateProgress(@Param("name") String name,
+                       @Param("owner") String owner,
+                       @Param("lastProcessedId") Long lastProcessedId,
+                       @Param("processedCount") Long processedCount,
+                       @Param("leasedUntil") LocalDateTime leasedUntil);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLease l set l.completed = true, l.leasedUntil = :now where l.name = :name and l.owner = :owner")
+    int complete(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update JobLease l set l.leasedUntil = :now where l.name = :name and l.owner = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner, @Param("now") LocalDateTime now);
+}
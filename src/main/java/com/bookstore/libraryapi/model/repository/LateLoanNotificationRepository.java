@@ -0,0 +1,60 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.LateLoanNotification;
+import com.bookstore.libraryapi.model.entity.NotificationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface LateLoanNotificationRepository extends JpaRepository<LateLoanNotification, Long> {
+
+    @Query(value = "select n.loanId from LateLoanNotification n " +
+            "where n.notificationDate = :notificationDate and n.loanId in :loanIds")
+    List<Long> findNotifiedLoanIds(@Param("notificationDate") LocalDate notificationDate,
+                                   @Param("loanIds") Collection<Long> loanIds);
+
+    @Query(value = "select n.id from LateLoanNotification n " +
+            "where ( n.status = com.bookstore.libraryapi.model.entity.NotificationStatus.PENDING " +
+            "and ( n.nextAttemptAt is null or n.nextAttemptAt <= :now ) ) " +
+            "or ( n.status = com.bookstore.libraryapi.model.entity.NotificationStatus.CLAIMED and n.claimedAt < :staleBefore ) " +
+            "order by n.id")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now,
+                                @Param("staleBefore") LocalDateTime staleBefore,
+                                Pageable pageable);
+
+    @Modifying
+    @Query(value = "update LateLoanNotification n " +
+            "set n.status = com.bookstore.libraryapi.model.entity.NotificationStatus.CLAIMED, " +
+            "n.claimToken = :claimToken, n.claimedAt = :claimedAt " +
+            "where n.id in :ids " +
+            "and ( ( n.status = com.bookstore.libraryapi.model.entity.NotificationStatus.PENDING " +
+            "and ( n.nextAttemptAt is null or n.nextAttemptAt <= :claimedAt ) ) " +
+            "or ( n.status = com.bookstore.libraryapi.model.entity.NotificationStatus.CLAIMED and n.claimedAt < :staleBefore ) )")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("claimToken") String claimToken,
+              @Param("claimedAt") LocalDateTime claimedAt,
+              @Param("staleBefore") LocalDateTime staleBefore);
+
+    List<LateLoanNotification> findByClaimTokenAndStatus(String claimToken, NotificationStatus status);
+
+    @Modifying
+    @Query(value = "update LateLoanNotification n " +
+            "set n.status = com.bookstore.libraryapi.model.entity.NotificationStatus.SENT, n.sentAt = :sentAt " +
+            "where n.id = :id and n.claimToken = :claimToken")
+    int markSent(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query(value = "update LateLoanNotification n " +
+            "set n.status = :status, n.attempts = n.attempts + 1, n.claimToken = null, n.claimedAt = null, " +
+            "n.nextAttemptAt = :nextAttemptAt " +
+            "where n.id = :id and n.claimToken = :claimToken")
+    int release(@Param("id") Long id, @Param("claimToken") String claimToken, @Param("status") NotificationStatus status,
+                @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
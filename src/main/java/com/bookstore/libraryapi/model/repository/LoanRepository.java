@@ -2,14 +2,18 @@ package com.bookstore.libraryapi.model.repository;
 
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface LoanRepository extends JpaRepository<Loan, Long> {
@@ -18,17 +22,50 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
             "then true " +
             "else false end" +
             " from Loan l where l.book =:book " +
-            "and" +
-            " ( l.returned is null or l.returned is false )")
+            "and l.returned = false")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
+    @Query(value = "select l from Loan l join fetch l.book where l.id in :ids")
+    List<Loan> findAllWithBookByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query(value = "select l from Loan l " +
-            "join l.book as b where b.isbn = :isbn " +
-            "or l.customer = :customer ")
+            "join fetch l.book as b where b.isbn = :isbn " +
+            "or l.customer = :customer ",
+            countQuery = "select count(l) from Loan l where l.customer = :customer " +
+                    "or l.book.id in ( select b.id from Book b where b.isbn = :isbn )")
     Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer, Pageable any1);
 
+    @Query(value = "select l from Loan l join fetch l.book as b where b.isbn = :isbn",
+            countQuery = "select count(l) from Loan l where l.book.id in ( select b.id from Book b where b.isbn = :isbn )")
+    Page<Loan> findByBookIsbn(@Param("isbn") String isbn, Pageable pageable);
+
+    @EntityGraph(attributePaths = "book")
+    Page<Loan> findByCustomer(String customer, Pageable pageable);
+
+    @EntityGraph(attributePaths = "book")
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query( value = "select l from Loan l where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false )")
+    @Query(value = "select l from Loan l join fetch l.book as b where l.id > :lastId " +
+            "and ( ( :isbn is null and :customer is null ) or b.isbn = :isbn or l.customer = :customer ) " +
+            "order by l.id")
+    Slice<Loan> findAfter(@Param("lastId") Long lastId,
+                          @Param("isbn") String isbn,
+                          @Param("customer") String customer,
+                          Pageable pageable);
+
+    @Query( value = "select l from Loan l where l.loanDate <= :threeDaysAgo and l.returned = false")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo")LocalDate threeDaysAgo);
+
+    /**
+     * Ordered by {@code returned}, always false here, before the id so that the {@code (returned, id)}
+     * index serves the order and each chunk stops after its rows instead of sorting every late loan.
+     */
+    @Query(value = "select l.id as id, l.customer as customer, l.customerEmail as customerEmail, l.loanDate as loanDate " +
+            "from Loan l where l.loanDate <= :threeDaysAgo and l.returned = false " +
+            "and l.id > :lastId and mod(l.id, :shardCount) = :shard order by l.returned, l.id")
+    List<LateLoanProjection> findLateLoansAfter(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                                @Param("lastId") Long lastId,
+                                                @Param("shard") int shard,
+                                                @Param("shardCount") int shardCount,
+                                                Pageable pageable);
 }
@@ -0,0 +1,10 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.BookImportResultDTO;
+
+import java.util.Iterator;
+
+public interface BookImportService {
+    BookImportResultDTO importBooks(Iterator<BookDto> books);
+}
@@ -0,0 +1,21 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookSearchService {
+    List<BookSearchResultDTO> search(String query, int limit);
+
+    void index(Collection<Book> books);
+
+    void remove(Book book);
+
+    boolean rebuild();
+
+    boolean isRebuilding();
+
+    int getIndexedCount();
+}
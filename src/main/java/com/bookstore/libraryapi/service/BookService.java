@@ -3,8 +3,11 @@ package com.bookstore.libraryapi.service;
 import com.bookstore.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -12,7 +15,10 @@ public interface BookService {
     Book save(Book any);
     Optional<Book> getById(Long id);
     Optional<Book> getByIsbn(String isbn);
+    List<Book> getByIsbns(Collection<String> isbns);
     void delete(Book book);
     Book update(Book book);
     Page<Book> find(Book filter, Pageable pageRequest);
+    Slice<Book> findAfter(Book filter, Long lastId, int size);
+    List<Book> saveAll(List<Book> books);
 }
@@ -1,7 +1,10 @@
 package com.bookstore.libraryapi.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface EmailService {
     void sendMails(String message, List<String> mailsList);
+
+    CompletableFuture<Void> sendMail(String message, String mail);
 }
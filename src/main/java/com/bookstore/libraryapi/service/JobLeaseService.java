@@ -0,0 +1,23 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.entity.JobLease;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+public interface JobLeaseService {
+    Optional<JobLease> tryAcquire(String name, Duration duration);
+
+    Optional<JobLease> tryTakeOver(String name, Duration duration);
+
+    boolean recordProgress(String name, Long lastProcessedId, Long processedCount, Duration duration);
+
+    void release(String name);
+
+    void complete(String name);
+
+    List<JobLease> findAll();
+
+    String getInstanceId();
+}
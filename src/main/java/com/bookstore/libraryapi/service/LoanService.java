@@ -1,9 +1,13 @@
 package com.bookstore.libraryapi.service;
 
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -19,8 +23,16 @@ public interface LoanService {
 
     Page<Loan> find(com.bookstore.libraryapi.api.dto.LoanFilterDTO filterDTO, Pageable page );
 
+    Slice<Loan> findAfter(com.bookstore.libraryapi.api.dto.LoanFilterDTO filterDTO, Long lastId, int size);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
     List<Loan> getAllLateloans();
+
+    List<BatchItemResultDTO> saveAll(List<Loan> loans);
+
+    List<BatchItemResultDTO> updateReturned(List<LoanReturnDTO> returns);
+
+    List<LateLoanProjection> getLateLoansAfter(Long lastId, int chunkSize, int shard, int shardCount);
 }
 
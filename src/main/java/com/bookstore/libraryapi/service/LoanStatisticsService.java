@@ -0,0 +1,16 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.LoanStatsDTO;
+import com.bookstore.libraryapi.model.entity.Loan;
+
+public interface LoanStatisticsService {
+    LoanStatsDTO getStatistics();
+
+    void loanCreated(Loan loan);
+
+    void loanReturned(Loan loan);
+
+    void loanReopened(Loan loan);
+
+    LoanStatsDTO rebuild();
+}
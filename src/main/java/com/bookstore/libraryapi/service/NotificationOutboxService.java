@@ -0,0 +1,17 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.entity.LateLoanNotification;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface NotificationOutboxService {
+    int enqueue(List<LateLoanProjection> lateLoans, LocalDate notificationDate);
+
+    List<LateLoanNotification> claimBatch(int batchSize);
+
+    void markSent(LateLoanNotification notification);
+
+    void markFailed(LateLoanNotification notification);
+}
@@ -1,15 +1,22 @@
 package com.bookstore.libraryapi.service;
 
-import com.bookstore.libraryapi.model.entity.Loan;
-import lombok.AllArgsConstructor;
+import com.bookstore.libraryapi.model.entity.JobLease;
+import com.bookstore.libraryapi.model.entity.LateLoanNotification;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class SchedulerService {
@@ -19,17 +26,148 @@ public class SchedulerService {
     @Value("${application.mail.lateloans.message}")
     private String message;
 
+    @Value("${application.mail.lateloans.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${application.mail.lateloans.chunk-delay-ms:0}")
+    private long chunkDelayMs;
+
+    @Value("${application.mail.outbox.batch-size:100}")
+    private int outboxBatchSize;
+
+    @Value("${application.scheduler.late-loans.shard-count:1}")
+    private int shardCount;
+
+    @Value("${application.scheduler.late-loans.lease-duration-minutes:30}")
+    private long leaseDurationMinutes;
+
     private final LoanService loanService;
     private final EmailService emailService;
+    private final NotificationOutboxService outboxService;
+    private final JobLeaseService leaseService;
+    private final MeterRegistry meterRegistry;
 
+    /**
+     * Every replica fires this at midnight, but a shard is only enqueued by the replica
+     * holding its lease. Each replica starts at a different shard and then tries the
+     * others, so shards left by a slow or dead replica are still picked up.
+     */
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendMailToLateLoans() {
-        List<Loan> allLateLoans = loanService.getAllLateloans();
-        List<String> mailsList = allLateLoans.stream()
-        .map(loan -> loan.getCustomerEmail())
-        .collect(Collectors.toList());
+        int firstShard = Math.floorMod(leaseService.getInstanceId().hashCode(), shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shard = (firstShard + i) % shardCount;
+            String leaseName = leaseName(shard);
+            leaseService.tryAcquire(leaseName, leaseDuration())
+                    .ifPresent(lease -> enqueueLateLoans(lease, shard));
+        }
+        drainOutbox();
+    }
+
+    /**
+     * Picks up the runs left unfinished by a replica that crashed or failed, once their lease
+     * has expired. The run keeps its date and resumes after the last loan it enqueued, so a
+     * crash costs at most one lease duration of delay instead of the rest of the day's run.
+     */
+    @Scheduled(fixedDelayString = "${application.scheduler.late-loans.takeover-interval-ms:60000}")
+    public void resumeLateLoans() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int leasedShard = shard;
+            leaseService.tryTakeOver(leaseName(shard), leaseDuration())
+                    .ifPresent(lease -> {
+                        log.info("taking over the unfinished run of {} after loan {}", lease.getName(), lease.getLastProcessedId());
+                        enqueueLateLoans(lease, leasedShard);
+                    });
+        }
+    }
+
+    /**
+     * Walks the late loans of one shard in chunks ordered by id, so only one chunk of
+     * projections is held in memory at a time. Progress is saved on the lease after
+     * every chunk, so a replica taking over an expired lease resumes where it stopped;
+     * the lease is marked completed once the last chunk is enqueued.
+     */
+    public void enqueueLateLoans(JobLease lease, int shard) {
+        LocalDate runDate = lease.getRunDate() != null ? lease.getRunDate() : LocalDate.now();
+        long lastId = lease.getLastProcessedId();
+        long enqueued = lease.getProcessedCount();
+        try {
+            List<LateLoanProjection> chunk = loanService.getLateLoansAfter(lastId, chunkSize, shard, shardCount);
+            while (!chunk.isEmpty()) {
+                int added = outboxService.enqueue(chunk, runDate);
+                enqueued += added;
+                items("late-loans", "enqueued").increment(added);
+                lastId = chunk.get(chunk.size() - 1).getId();
+                if (!leaseService.recordProgress(lease.getName(), lastId, enqueued, leaseDuration())) {
+                    log.warn("lease {} was lost, stopping at loan {}", lease.getName(), lastId);
+                    return;
+                }
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                chunk = loanService.getLateLoansAfter(lastId, chunkSize, shard, shardCount);
+            }
+        } catch (RuntimeException e) {
+            leaseService.release(lease.getName());
+            throw e;
+        }
+        leaseService.complete(lease.getName());
+        log.info("{} late loan notifications added to the outbox for {}", enqueued, lease.getName());
+    }
 
-        emailService.sendMails(message, mailsList);
+    /**
+     * Sends pending outbox notifications batch by batch. Every batch is claimed before
+     * sending, so several instances can drain the outbox at the same time.
+     */
+    @Scheduled(fixedDelayString = "${application.mail.outbox.drain-interval-ms:300000}")
+    public void drainOutbox() {
+        List<LateLoanNotification> batch = outboxService.claimBatch(outboxBatchSize);
+        while (!batch.isEmpty()) {
+            CompletableFuture<?>[] dispatches = batch.stream()
+                    .map(this::dispatch)
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(dispatches).join();
+
+            pause();
+            batch = outboxService.claimBatch(outboxBatchSize);
+        }
+    }
+
+    private CompletableFuture<Void> dispatch(LateLoanNotification notification) {
+        return emailService.sendMail(message, notification.getCustomerEmail())
+                .handle((result, error) -> {
+                    if (error == null) {
+                        outboxService.markSent(notification);
+                        items("outbox", "sent").increment();
+                    } else {
+                        log.warn("late loan notification {} failed", notification.getId(), error);
+                        outboxService.markFailed(notification);
+                        items("outbox", "failed").increment();
+                    }
+                    return null;
+                });
+    }
+
+    private Counter items(String job, String result) {
+        return meterRegistry.counter("library.scheduler.items", "job", job, "result", result);
+    }
+
+    private String leaseName(int shard) {
+        return shardCount > 1 ? "late-loans-shard-" + shard : "late-loans";
+    }
+
+    private Duration leaseDuration() {
+        return Duration.ofMinutes(leaseDurationMinutes);
+    }
 
+    private void pause() {
+        if (chunkDelayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,177 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.config.VirtualThreadConfig;
+import com.bookstore.libraryapi.service.EmailService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Hands mails over to a bounded pool of workers so the caller never waits on SMTP.
+ * When the queue is full the caller runs the batch itself, which throttles producers
+ * instead of dropping mails or growing the queue without limit.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "application.mail.async.enabled", havingValue = "true", matchIfMissing = true)
+public class AsyncEmailServiceImpl implements EmailService {
+
+    @Value("${application.mail.default-sender}")
+    private String sender;
+
+    @Value("${application.mail.async.batch-size:50}")
+    private int batchSize;
+
+    @Value("${application.mail.async.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${application.mail.async.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${application.mail.async.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    private final SmtpTransportPool transportPool;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Counter sentCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter retryCounter;
+
+    public AsyncEmailServiceImpl(SmtpTransportPool transportPool, MeterRegistry meterRegistry, int poolSize, int queueCapacity) {
+        this(transportPool, meterRegistry, poolSize, queueCapacity, Optional.empty());
+    }
+
+    /**
+     * @param threadFactory creates the workers, virtual threads with the {@code virtual-threads} profile
+     */
+    @Autowired
+    public AsyncEmailServiceImpl(SmtpTransportPool transportPool,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${application.mail.async.pool-size:4}") int poolSize,
+                                 @Value("${application.mail.async.queue-capacity:100}") int queueCapacity,
+                                 @Qualifier(VirtualThreadConfig.MAIL_DISPATCH_THREAD_FACTORY) Optional<ThreadFactory> threadFactory) {
+        this.transportPool = transportPool;
+
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaxPoolSize(poolSize);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("mail-dispatch-");
+        threadFactory.ifPresent(this.executor::setThreadFactory);
+        this.executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.setWaitForTasksToCompleteOnShutdown(true);
+        this.executor.setAwaitTerminationSeconds(60);
+        this.executor.initialize();
+
+        this.sentCounter = meterRegistry.counter("library.mail.sent");
+        this.failedCounter = meterRegistry.counter("library.mail.failed");
+        this.retryCounter = meterRegistry.counter("library.mail.retries");
+        Gauge.builder("library.mail.queue.depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("library.mail.workers.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+        Gauge.builder("library.mail.transports.idle", transportPool, SmtpTransportPool::getIdleCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void sendMails(String message, List<String> mailsList) {
+        for (int start = 0; start < mailsList.size(); start += batchSize) {
+            List<String> batch = mailsList.subList(start, Math.min(start + batchSize, mailsList.size()));
+            String[] recipients = batch.toArray(new String[0]);
+            executor.execute(() -> sendBatch(message, recipients));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> sendMail(String message, String mail) {
+        return CompletableFuture.runAsync(() -> sendWithRetry(createMessage(message, mail)), executor);
+    }
+
+    private void sendBatch(String message, String[] recipients) {
+        for (String recipient : recipients) {
+            try {
+                sendWithRetry(createMessage(message, recipient));
+            } catch (MailException e) {
+                log.error("giving up on mail to {}", recipient, e);
+            }
+        }
+    }
+
+    private void sendWithRetry(SimpleMailMessage mailMessage) {
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transportPool.send(mailMessage);
+                sentCounter.increment();
+                return;
+            } catch (MessagingException e) {
+                if (!isTransient(e) || attempt >= maxAttempts) {
+                    failedCounter.increment();
+                    throw new MailSendException("failed to send mail after " + attempt + " attempts", e);
+                }
+                retryCounter.increment();
+                log.warn("transient failure sending mail to {}, retrying in {} ms", mailMessage.getTo(), backoff);
+                if (!sleep(backoff)) {
+                    failedCounter.increment();
+                    throw new MailSendException("interrupted while waiting to retry", e);
+                }
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private boolean isTransient(MessagingException e) {
+        return !(e instanceof AuthenticationFailedException) && !(e instanceof SendFailedException);
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private SimpleMailMessage createMessage(String message, String mail) {
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setFrom(sender);
+        mailMessage.setSubject("Book loan needs to be returned");
+        mailMessage.setText(message);
+        mailMessage.setTo(mail);
+        return mailMessage;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,176 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.BookImportResultDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.BookImportService;
+import com.bookstore.libraryapi.service.BookService;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Imports books chunk by chunk so only one chunk is held in memory. Duplicates inside
+ * a chunk are caught with a set; duplicates against earlier chunks and the database
+ * go through the ISBN filter and one IN query per chunk. The filter only knows the ISBNs
+ * of this instance, so a chunk failing on one it missed is inserted again row by row.
+ */
+@Slf4j
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private final BookService bookService;
+
+    private final BookRepository repository;
+
+    private final IsbnBloomFilter isbnFilter;
+
+    @Value("${application.books.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${application.books.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public BookImportServiceImpl(BookService bookService, BookRepository repository, IsbnBloomFilter isbnFilter) {
+        this.bookService = bookService;
+        this.repository = repository;
+        this.isbnFilter = isbnFilter;
+    }
+
+    @Override
+    public BookImportResultDTO importBooks(Iterator<BookDto> books) {
+        BookImportResultDTO result = BookImportResultDTO.builder().errors(new ArrayList<>()).build();
+        Map<String, Integer> chunk = new LinkedHashMap<>();
+        Map<Integer, BookDto> rows = new HashMap<>();
+        int index = 0;
+        while (true) {
+            BookDto dto;
+            try {
+                if (!books.hasNext()) {
+                    break;
+                }
+                dto = books.next();
+            } catch (RuntimeJsonMappingException e) {
+                result.setReceived(result.getReceived() + 1);
+                reject(result, index++, null, "invalid row: " + e.getMessage());
+                continue;
+            } catch (RuntimeException e) {
+                result.setReceived(result.getReceived() + 1);
+                reject(result, index, null, "malformed input, import stopped: " + e.getMessage());
+                break;
+            }
+            result.setReceived(result.getReceived() + 1);
+
+            String error = validate(dto);
+            if (error != null) {
+                reject(result, index, dto == null ? null : dto.getIsbn(), error);
+            } else if (chunk.containsKey(dto.getIsbn())) {
+                reject(result, index, dto.getIsbn(), "isbn duplicated in import");
+            } else {
+                chunk.put(dto.getIsbn(), index);
+                rows.put(index, dto);
+            }
+            index++;
+
+            if (chunk.size() >= chunkSize) {
+                insertChunk(chunk, rows, result);
+            }
+        }
+        insertChunk(chunk, rows, result);
+        log.info("book import finished: {} received, {} imported, {} rejected",
+                result.getReceived(), result.getImported(), result.getRejected());
+        return result;
+    }
+
+    private void insertChunk(Map<String, Integer> chunk, Map<Integer, BookDto> rows, BookImportResultDTO result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<String> possiblyStored = chunk.keySet().stream()
+                .filter(isbnFilter::mightContain)
+                .collect(Collectors.toList());
+        Set<String> stored = possiblyStored.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(repository.findExistingIsbns(possiblyStored));
+        possiblyStored.stream().filter(isbn -> !stored.contains(isbn)).forEach(isbn -> isbnFilter.recordFalsePositive());
+
+        List<Book> newBooks = new ArrayList<>(chunk.size());
+        chunk.forEach((isbn, row) -> {
+            if (stored.contains(isbn)) {
+                reject(result, row, isbn, "isbn já cadastrado");
+            } else {
+                    newBooks.add(toBook(rows.get(row)));
+            }
+        });
+
+        if (!newBooks.isEmpty()) {
+            try {
+                bookService.saveAll(newBooks);
+                result.setImported(result.getImported() + newBooks.size());
+            } catch (DataAccessException e) {
+                log.warn("failed to insert chunk of {} books, inserting them one by one", newBooks.size(), e);
+                newBooks.forEach(book -> {
+                    Integer row = chunk.get(book.getIsbn());
+                    insertOne(row, rows.get(row), result);
+                });
+            }
+        }
+        chunk.clear();
+        rows.clear();
+    }
+
+    /**
+     * Inserts a row of a failed chunk on its own, so a duplicate the filter missed only rejects itself.
+     */
+    private void insertOne(Integer row, BookDto dto, BookImportResultDTO result) {
+        try {
+            bookService.saveAll(Collections.singletonList(toBook(dto)));
+            result.setImported(result.getImported() + 1);
+        } catch (DataIntegrityViolationException e) {
+            reject(result, row, dto.getIsbn(), "isbn já cadastrado");
+        } catch (DataAccessException e) {
+            reject(result, row, dto.getIsbn(), "insert failed");
+        }
+    }
+
+    private static Book toBook(BookDto dto) {
+        return Book.builder().title(dto.getTitle()).author(dto.getAuthor()).isbn(dto.getIsbn()).build();
+    }
+
+    private String validate(BookDto dto) {
+        if (dto == null) {
+            return "empty row";
+        }
+        if (!StringUtils.hasText(dto.getTitle())) {
+            return "title is required";
+        }
+        if (!StringUtils.hasText(dto.getAuthor())) {
+            return "author is required";
+        }
+        if (!StringUtils.hasText(dto.getIsbn())) {
+            return "isbn is required";
+        }
+        return null;
+    }
+
+    private void reject(BookImportResultDTO result, Integer index, String isbn, String message) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(BatchItemResultDTO.builder()
+                    .index(index)
+                    .isbn(isbn)
+                    .success(false)
+                    .message(message)
+                    .build());
+        }
+    }
+}
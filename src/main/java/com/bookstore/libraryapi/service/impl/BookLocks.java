@@ -0,0 +1,108 @@
+package com.bookstore.libraryapi.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process locks per book, hashed into a fixed number of stripes so the memory does not grow
+ * with the catalogue. Two loans of the same book queue here instead of both inserting a loan and
+ * racing for the book row, while loans of other books almost never share a stripe.
+ * <p>
+ * Only one instance is covered: the compare-and-set on {@code book.active_loan_id} stays the
+ * guarantee between instances, the stripes just keep the losers of a rush off the database.
+ */
+@Component
+public class BookLocks {
+
+    private final ReentrantLock[] stripes;
+
+    private final long timeoutNanos;
+
+    private final Timer waitTimer;
+
+    public BookLocks(MeterRegistry meterRegistry,
+                     @Value("${application.loans.lock-stripes:256}") int stripeCount,
+                     @Value("${application.loans.lock-timeout-ms:5000}") long timeoutMs) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.waitTimer = meterRegistry.timer("library.loans.lock.wait");
+    }
+
+    /**
+     * Locks the stripes of the given books until the current transaction completes, committed or
+     * not, so the next loan of the book reads what this one wrote. The stripes are taken in index
+     * order, which keeps two batches sharing books from deadlocking.
+     */
+    public void lockUntilCompletion(Collection<Long> bookIds) {
+        List<ReentrantLock> locked = lock(bookIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    unlock(locked);
+                }
+            });
+        } else {
+            // without a transaction each statement commits on its own, nothing is left to guard
+            unlock(locked);
+        }
+    }
+
+    int stripeOf(Long bookId) {
+        int hash = Long.hashCode(bookId);
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    private List<ReentrantLock> lock(Collection<Long> bookIds) {
+        boolean[] wanted = new boolean[stripes.length];
+        for (Long bookId : bookIds) {
+            wanted[stripeOf(bookId)] = true;
+        }
+        List<ReentrantLock> locked = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < wanted.length; i++) {
+                if (!wanted[i]) {
+                    continue;
+                }
+                long remaining = timeoutNanos - (System.nanoTime() - start);
+                if (!stripes[i].tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                    throw new CannotAcquireLockException("book lock not acquired within "
+                            + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                }
+                locked.add(stripes[i]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(locked);
+            throw new CannotAcquireLockException("interrupted while waiting for a book lock", e);
+        } catch (RuntimeException e) {
+            unlock(locked);
+            throw e;
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return locked;
+    }
+
+    private static void unlock(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.BookSearchService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Lucene index over title, author and isbn stored on local disk. Books are upserted by id when
+ * saved and removed when deleted (after commit when called inside a transaction); the index can be
+ * rebuilt from the database in the background. Each document carries the generation it was written
+ * in, so a rebuild drops the books it did not see without ever emptying the index.
+ * <p>
+ * The updates made while a rebuild runs are written at once and kept aside: a chunk the rebuild read
+ * before such an update committed may overwrite it, so they are written again before the rebuild
+ * drops the older generations, holding off new updates meanwhile.
+ */
+@Slf4j
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+
+    private static final String ID = "id";
+
+    private static final String TITLE = "title";
+
+    private static final String AUTHOR = "author";
+
+    private static final String ISBN = "isbn";
+
+    private static final String ISBN_KEY = "isbn_key";
+
+    private static final String GENERATION = "generation";
+
+    private static final int MAX_RESULTS = 100;
+
+    private static final int MAX_QUERY_TERMS = 10;
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private static final float ISBN_BOOST = 10f;
+
+    private static final float EXACT_BOOST = 3f;
+
+    private static final float PREFIX_BOOST = 2f;
+
+    private final BookRepository repository;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private final Path indexPath;
+
+    private final boolean temporary;
+
+    private final boolean rebuildOnStartup;
+
+    private final Directory directory;
+
+    private final IndexWriter writer;
+
+    private final SearcherManager searcherManager;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final Object updates = new Object();
+
+    /**
+     * Guarded by {@link #updates}, like {@link #updatedWhileRebuilding}.
+     */
+    private long generation;
+
+    /**
+     * Documents written while a rebuild runs, by book id, null for a removed book; null itself when
+     * no rebuild runs.
+     */
+    private Map<String, Document> updatedWhileRebuilding;
+
+    public BookSearchServiceImpl(BookRepository repository,
+                                 @Value("${application.search.index-dir:}") String indexDir,
+                                 @Value("${application.search.rebuild-on-startup:true}") boolean rebuildOnStartup) throws IOException {
+        this.repository = repository;
+        this.temporary = indexDir.isEmpty();
+        this.indexPath = temporary ? Files.createTempDirectory("book-index") : Files.createDirectories(Paths.get(indexDir));
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.directory = FSDirectory.open(indexPath);
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Every word of the query has to match title or author, exactly (best) or, for the last word,
+     * as a prefix as typed while searching. Only when that finds fewer books than asked for is the
+     * query run again tolerating one or two typos per word, depending on its length, so common
+     * words do not pay for the fuzzy expansion. An isbn, with or without hyphens, matches its book directly.
+     */
+    @Override
+    public List<BookSearchResultDTO> search(String text, int limit) {
+        if (text == null || text.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        int size = Math.min(Math.max(limit, 1), MAX_RESULTS);
+        List<String> terms = analyze(text);
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(buildQuery(text, terms, false), size);
+                if (top.scoreDocs.length < size && !terms.isEmpty()) {
+                    top = searcher.search(buildQuery(text, terms, true), size);
+                }
+                List<BookSearchResultDTO> results = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc hit : top.scoreDocs) {
+                    Document doc = searcher.doc(hit.doc);
+                    results.add(BookSearchResultDTO.builder()
+                            .id(Long.valueOf(doc.get(ID)))
+                            .title(doc.get(TITLE))
+                            .author(doc.get(AUTHOR))
+                            .isbn(doc.get(ISBN))
+                            .score(hit.score)
+                            .build());
+                }
+                return results;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void index(Collection<Book> books) {
+        List<Book> copy = new ArrayList<>(books);
+        afterCommit(() -> {
+            synchronized (updates) {
+                for (Book book : copy) {
+                    update(String.valueOf(book.getId()), toDocument(book, generation));
+                }
+            }
+            searcherManager.maybeRefresh();
+        });
+    }
+
+    @Override
+    public void remove(Book book) {
+        String id = String.valueOf(book.getId());
+        afterCommit(() -> {
+            synchronized (updates) {
+                update(id, null);
+            }
+            searcherManager.maybeRefresh();
+        });
+    }
+
+    @Override
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::rebuildNow, "book-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    @Override
+    public int getIndexedCount() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.getIndexReader().numDocs();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${application.search.commit-interval-ms:60000}")
+    public void commit() throws IOException {
+        if (writer.isOpen() && writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+        if (temporary) {
+            try (Stream<Path> files = Files.walk(indexPath)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private void rebuildNow() {
+        try {
+            long current;
+            synchronized (updates) {
+                current = Math.max(generation + 1, System.currentTimeMillis());
+                generation = current;
+                updatedWhileRebuilding = new HashMap<>();
+            }
+            long count = 0;
+            Slice<Book> chunk = repository.findAfter(0L, null, null, null, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            while (true) {
+                for (Book book : chunk.getContent()) {
+                    write(String.valueOf(book.getId()), toDocument(book, current));
+                }
+                count += chunk.getNumberOfElements();
+                if (!chunk.hasNext()) {
+                    break;
+                }
+                Long lastId = chunk.getContent().get(chunk.getNumberOfElements() - 1).getId();
+                chunk = repository.findAfter(lastId, null, null, null, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+            }
+            synchronized (updates) {
+                for (Map.Entry<String, Document> update : updatedWhileRebuilding.entrySet()) {
+                    write(update.getKey(), update.getValue());
+                }
+                writer.deleteDocuments(LongPoint.newRangeQuery(GENERATION, Long.MIN_VALUE, current - 1));
+                updatedWhileRebuilding = null;
+            }
+            writer.commit();
+            searcherManager.maybeRefresh();
+            log.info("book index rebuilt with {} books", count);
+        } catch (IOException | RuntimeException e) {
+            log.error("book index rebuild failed", e);
+        } finally {
+            synchronized (updates) {
+                updatedWhileRebuilding = null;
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Called holding {@link #updates}.
+     */
+    private void update(String id, Document doc) throws IOException {
+        write(id, doc);
+        if (updatedWhileRebuilding != null) {
+            updatedWhileRebuilding.put(id, doc);
+        }
+    }
+
+    private void write(String id, Document doc) throws IOException {
+        if (doc == null) {
+            writer.deleteDocuments(new Term(ID, id));
+        } else {
+            writer.updateDocument(new Term(ID, id), doc);
+        }
+    }
+
+    private Document toDocument(Book book, long generation) {
+        Document doc = new Document();
+        doc.add(new StringField(ID, String.valueOf(book.getId()), Field.Store.YES));
+        if (book.getTitle() != null) {
+            doc.add(new TextField(TITLE, book.getTitle(), Field.Store.YES));
+        }
+        if (book.getAuthor() != null) {
+            doc.add(new TextField(AUTHOR, book.getAuthor(), Field.Store.YES));
+        }
+        if (book.getIsbn() != null) {
+            doc.add(new StoredField(ISBN, book.getIsbn()));
+            doc.add(new StringField(ISBN_KEY, IsbnBloomFilter.normalize(book.getIsbn()), Field.Store.NO));
+        }
+        doc.add(new LongPoint(GENERATION, generation));
+        return doc;
+    }
+
+    private Query buildQuery(String text, List<String> terms, boolean fuzzy) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(new BoostQuery(new TermQuery(new Term(ISBN_KEY, IsbnBloomFilter.normalize(text.trim()))), ISBN_BOOST),
+                BooleanClause.Occur.SHOULD);
+        if (!terms.isEmpty()) {
+            BooleanQuery.Builder allTerms = new BooleanQuery.Builder();
+            for (int i = 0; i < terms.size(); i++) {
+                allTerms.add(termQuery(terms.get(i), i == terms.size() - 1, fuzzy), BooleanClause.Occur.MUST);
+            }
+            query.add(allTerms.build(), BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    private Query termQuery(String term, boolean prefix, boolean fuzzy) {
+        int maxEdits = !fuzzy || term.length() < 3 ? 0 : term.length() < 6 ? 1 : 2;
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String field : new String[]{TITLE, AUTHOR}) {
+            Term fieldTerm = new Term(field, term);
+            query.add(new BoostQuery(new TermQuery(fieldTerm), EXACT_BOOST), BooleanClause.Occur.SHOULD);
+            if (prefix) {
+                query.add(new BoostQuery(new PrefixQuery(fieldTerm), PREFIX_BOOST), BooleanClause.Occur.SHOULD);
+            }
+            if (maxEdits > 0) {
+                query.add(new FuzzyQuery(fieldTerm, maxEdits, 1), BooleanClause.Occur.SHOULD);
+            }
+        }
+        return query.build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken() && terms.size() < MAX_QUERY_TERMS) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private void afterCommit(IndexUpdate update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    apply(update);
+                }
+            });
+        } else {
+            apply(update);
+        }
+    }
+
+    private void apply(IndexUpdate update) {
+        try {
+            update.run();
+        } catch (IOException | RuntimeException e) {
+            log.error("book index update failed, rebuild the index to recover", e);
+        }
+    }
+
+    private interface IndexUpdate {
+        void run() throws IOException;
+    }
+}
@@ -1,16 +1,30 @@
 package com.bookstore.libraryapi.service.impl;
 
+import com.bookstore.libraryapi.config.CacheConfig;
+import com.bookstore.libraryapi.config.ReplicaRoutingDataSource;
 import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.BookSearchService;
 import com.bookstore.libraryapi.service.BookService;
-import javassist.NotFoundException;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -18,45 +32,95 @@ public class BookServiceImpl implements BookService {
 
     BookRepository repository;
 
-    public BookServiceImpl(BookRepository repository) {
+    IsbnBloomFilter isbnFilter;
+
+    EntityManager entityManager;
+
+    BookSearchService searchService;
+
+    public BookServiceImpl(BookRepository repository, IsbnBloomFilter isbnFilter, EntityManager entityManager,
+                           BookSearchService searchService) {
         this.repository = repository;
+        this.isbnFilter = isbnFilter;
+        this.entityManager = entityManager;
+        this.searchService = searchService;
     }
 
     @Override
+    @Caching(put = {
+            @CachePut(cacheNames = CacheConfig.BOOKS, key = "#result.id"),
+            @CachePut(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#result.isbn")
+    })
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn())) {
+        Book savedBook;
+        try {
+            // the unique isbn constraint is the duplicate check; flushing surfaces the violation here
+            savedBook = repository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
             throw new BusinessException("isbn já cadastrado");
         }
-        return repository.save(book);
+        isbnFilter.put(savedBook.getIsbn());
+        searchService.index(Collections.singletonList(savedBook));
+        return savedBook;
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.BOOKS, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Book> getById(Long id) {
-        return this.repository.findById(id);
+        return ReplicaRoutingDataSource.onPrimary(() -> this.repository.findById(id));
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#isbn", unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Book> getByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        return ReplicaRoutingDataSource.onPrimary(() -> repository.findByIsbn(isbn));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Book> getByIsbns(Collection<String> isbns) {
+        return repository.findByIsbnIn(isbns);
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#book.id"),
+            @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#book.isbn")
+    })
     public void delete(Book book) {
         if (book == null || book.getId() == null) {
              throw new IllegalArgumentException("Book id can't be null");
         }
         this.repository.delete(book);
+        searchService.remove(book);
     }
 
+    /**
+     * Expects an edited copy, never the cached instance, which concurrent readers share. The entry is
+     * evicted first so nothing is served from it while the update runs, and the saved book is put back
+     * with its new version.
+     */
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#book.id", beforeInvocation = true),
+            @CacheEvict(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#book.isbn", beforeInvocation = true)
+    }, put = {
+            @CachePut(cacheNames = CacheConfig.BOOKS, key = "#result.id"),
+            @CachePut(cacheNames = CacheConfig.BOOKS_BY_ISBN, key = "#result.isbn")
+    })
     public Book update(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id can't be null");
         }
-        return this.repository.save(book);
+        Book updatedBook = this.repository.save(book);
+        searchService.index(Collections.singletonList(updatedBook));
+        return updatedBook;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
         Example<Book> example = Example.of(filter,
                 ExampleMatcher
@@ -67,4 +131,40 @@ public class BookServiceImpl implements BookService {
         );
         return repository.findAll(example, pageRequest);
     }
+
+    /**
+     * Keyset variant of {@link #find} with the same case insensitive prefix matching: seeks past
+     * {@code lastId} and reads one extra row to know whether another slice follows, without a count query.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Book> findAfter(Book filter, Long lastId, int size) {
+        return repository.findAfter(lastId, startingWith(filter.getTitle()), startingWith(filter.getAuthor()),
+                startingWith(filter.getIsbn()), PageRequest.of(0, size));
+    }
+
+    static String startingWith(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * Inserts the books in one transaction. The caller is expected to have checked
+     * the ISBNs already; the inserts are sent in JDBC batches. Saved books are detached
+     * so a long import does not keep every row in the request's persistence context.
+     */
+    @Override
+    @Transactional
+    public List<Book> saveAll(List<Book> books) {
+        List<Book> savedBooks = repository.saveAll(books);
+        repository.flush();
+        savedBooks.forEach(book -> {
+            entityManager.detach(book);
+            isbnFilter.put(book.getIsbn());
+        });
+        searchService.index(savedBooks);
+        return savedBooks;
+    }
 }
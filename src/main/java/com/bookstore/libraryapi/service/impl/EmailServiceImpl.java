@@ -1,35 +1,62 @@
 package com.bookstore.libraryapi.service.impl;
 
 import com.bookstore.libraryapi.service.EmailService;
-import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RequiredArgsConstructor
 @Service
+@ConditionalOnProperty(name = "application.mail.async.enabled", havingValue = "false")
 public class EmailServiceImpl implements EmailService {
 
-    @Value("application.mail.default-sender")
+    @Value("${application.mail.default-sender}")
     private String sender;
 
     private final JavaMailSender javaMailSender;
 
+    /**
+     * Sends one message per recipient so addresses are never disclosed to each other.
+     * All messages of the list go through a single {@link JavaMailSender#send(SimpleMailMessage...)}
+     * call, which reuses one SMTP connection for the whole batch.
+     */
     @Override
     public void sendMails(String message, List<String> mailsList) {
-        String[] mails = mailsList.toArray(new String[mailsList.size()]);
+        if (mailsList.isEmpty()) {
+            return;
+        }
+        SimpleMailMessage[] mailMessages = mailsList.stream()
+                .map(mail -> createMessage(message, mail))
+                .toArray(SimpleMailMessage[]::new);
+
+        javaMailSender.send(mailMessages);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendMail(String message, String mail) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        try {
+            javaMailSender.send(createMessage(message, mail));
+            result.complete(null);
+        } catch (MailException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
 
+    private SimpleMailMessage createMessage(String message, String mail) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setFrom(sender);
         mailMessage.setSubject("Book loan needs to be returned");
         mailMessage.setText(message);
-        mailMessage.setTo(mails);
-
-        javaMailSender.send(mailMessage);
-
+        mailMessage.setTo(mail);
+        return mailMessage;
     }
 }
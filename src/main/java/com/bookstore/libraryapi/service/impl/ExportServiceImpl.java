@@ -0,0 +1,86 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.service.ExportFormat;
+import com.bookstore.libraryapi.service.ExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams whole tables to an export writer straight from a JDBC cursor ordered by primary key.
+ * Rows never become entities, so nothing piles up in a persistence context, and the read-only
+ * transaction keeps the cursor open with {@code fetchSize} rows in flight on drivers that honour it.
+ */
+@Slf4j
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final String BOOKS_SQL = "select id, isbn, title, author from book order by id";
+
+    private static final String LOANS_SQL = "select l.id, l.customer, l.customer_email, l.loan_date, l.returned, " +
+            "b.isbn, b.title from loan l join book b on b.id = l.id_book order by l.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExportServiceImpl(DataSource dataSource, @Value("${application.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBooks(ExportFormat format, OutputStream out) throws IOException {
+        try (ExportWriter writer = ExportWriter.of(format, out, "id", "isbn", "title", "author")) {
+            long rows = export(BOOKS_SQL, writer, rs -> new Object[]{
+                    rs.getLong("id"), rs.getString("isbn"), rs.getString("title"), rs.getString("author")});
+            log.info("exported {} books as {}", rows, format);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportLoans(ExportFormat format, OutputStream out) throws IOException {
+        try (ExportWriter writer = ExportWriter.of(format, out,
+                "id", "customer", "email", "loanDate", "returned", "isbn", "title")) {
+            long rows = export(LOANS_SQL, writer, rs -> {
+                Date loanDate = rs.getDate("loan_date");
+                return new Object[]{rs.getLong("id"), rs.getString("customer"), rs.getString("customer_email"),
+                        loanDate == null ? null : loanDate.toLocalDate().toString(), rs.getBoolean("returned"),
+                        rs.getString("isbn"), rs.getString("title")};
+            });
+            log.info("exported {} loans as {}", rows, format);
+        }
+    }
+
+    private long export(String sql, ExportWriter writer, RowValues rowValues) throws IOException {
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(sql, rs -> {
+                try {
+                    writer.row(rowValues.of(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // the client went away, stop reading the cursor
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+
+    private interface RowValues {
+        Object[] of(ResultSet rs) throws SQLException;
+    }
+}
@@ -0,0 +1,128 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.service.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes export rows one at a time through a fixed size buffer, the only part of an export held in memory.
+ * Values are strings, numbers, booleans or nulls; dates are expected already formatted. Closing
+ * flushes the buffer but leaves the target stream open, it belongs to the caller.
+ */
+abstract class ExportWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final String[] columns;
+
+    protected ExportWriter(String[] columns) {
+        this.columns = columns;
+    }
+
+    static ExportWriter of(ExportFormat format, OutputStream out, String... columns) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        switch (format) {
+            case CSV:
+                return new Csv(writer, columns);
+            case NDJSON:
+                return new Ndjson(writer, columns);
+            default:
+                throw new IllegalArgumentException("unsupported export format " + format);
+        }
+    }
+
+    abstract void row(Object... values) throws IOException;
+
+    /**
+     * RFC 4180 rows behind a header line, fields quoted only when they hold a separator, quote or line break.
+     */
+    static class Csv extends ExportWriter {
+
+        private final Writer writer;
+
+        Csv(Writer writer, String[] columns) throws IOException {
+            super(columns);
+            this.writer = writer;
+            row((Object[]) columns);
+        }
+
+        @Override
+        void row(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writeField(values[i].toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * One JSON object per line keyed by the column names, written by a streaming generator without
+     * building an object per row.
+     */
+    static class Ndjson extends ExportWriter {
+
+        private static final JsonFactory JSON_FACTORY = new JsonFactory()
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        private final JsonGenerator generator;
+
+        Ndjson(Writer writer, String[] columns) throws IOException {
+            super(columns);
+            this.generator = JSON_FACTORY.createGenerator(writer);
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void row(Object... values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns[i]);
+                Object value = values[i];
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Long) {
+                    generator.writeNumber((Long) value);
+                } else if (value instanceof Boolean) {
+                    generator.writeBoolean((Boolean) value);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
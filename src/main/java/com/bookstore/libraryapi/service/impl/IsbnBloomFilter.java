@@ -0,0 +1,179 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.model.projection.BookIsbnProjection;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over every ISBN in the catalogue. A negative answer means the ISBN is
+ * definitely not stored, so the bulk import can skip the database lookup. Until the
+ * background load finishes every ISBN is reported as possibly present.
+ * Deleted books are never removed; they only cost an extra database check.
+ */
+@Slf4j
+@Component
+public class IsbnBloomFilter {
+
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final BookRepository repository;
+
+    private final AtomicLongArray bits;
+
+    private final int bitCount;
+
+    private final int hashCount;
+
+    private final AtomicLong insertions = new AtomicLong();
+
+    private final Counter negativeCounter;
+
+    private final Counter positiveCounter;
+
+    private final Counter falsePositiveCounter;
+
+    private volatile boolean ready;
+
+    public IsbnBloomFilter(BookRepository repository,
+                           MeterRegistry meterRegistry,
+                           @Value("${application.isbn-filter.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${application.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        long optimalBits = (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(optimalBits, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+
+        this.negativeCounter = meterRegistry.counter("library.isbn.filter.checks", "result", "negative");
+        this.positiveCounter = meterRegistry.counter("library.isbn.filter.checks", "result", "positive");
+        this.falsePositiveCounter = meterRegistry.counter("library.isbn.filter.false.positives");
+        Gauge.builder("library.isbn.filter.expected.fpp", this, IsbnBloomFilter::expectedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("library.isbn.filter.observed.fpp", this, IsbnBloomFilter::observedFalsePositiveRate)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "isbn-filter-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public void load() {
+        long lastId = 0L;
+        long loaded = 0L;
+        List<BookIsbnProjection> chunk = repository.findIsbnsAfter(lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+        while (!chunk.isEmpty()) {
+            chunk.forEach(book -> put(book.getIsbn()));
+            loaded += chunk.size();
+            lastId = chunk.get(chunk.size() - 1).getId();
+            chunk = repository.findIsbnsAfter(lastId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+        }
+        ready = true;
+        log.info("isbn filter loaded with {} isbns", loaded);
+    }
+
+    public boolean mightContain(String isbn) {
+        if (!ready) {
+            return true;
+        }
+        long hash = hash(isbn);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = Math.floorMod(first + i * second, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                negativeCounter.increment();
+                return false;
+            }
+        }
+        positiveCounter.increment();
+        return true;
+    }
+
+    public void put(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        long hash = hash(isbn);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = Math.floorMod(first + i * second, bitCount);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = bits.get(bit >>> 6);
+            } while ((word & mask) == 0 && !bits.compareAndSet(bit >>> 6, word, word | mask));
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Called by the import when the filter answered "maybe" but the lookup it could not skip found
+     * no such ISBN, so the observed rate compares the skipped lookups with the wasted ones.
+     */
+    public void recordFalsePositive() {
+        if (ready) {
+            falsePositiveCounter.increment();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions.get() / bitCount), hashCount);
+    }
+
+    private double observedFalsePositiveRate() {
+        double negatives = negativeCounter.count();
+        double falsePositives = falsePositiveCounter.count();
+        return negatives + falsePositives == 0 ? 0 : falsePositives / (negatives + falsePositives);
+    }
+
+    /**
+     * 64 bit FNV-1a over the normalized ISBN. Hyphens and spaces are ignored and
+     * ISBN-10 is mapped to its 978 ISBN-13 form, so both spellings hit the same bits.
+     */
+    private static long hash(String isbn) {
+        String normalized = normalize(isbn);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static String normalize(String isbn) {
+        StringBuilder normalized = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && c != ' ') {
+                normalized.append(Character.toUpperCase(c));
+            }
+        }
+        if (normalized.length() == 10 && normalized.substring(0, 9).chars().allMatch(Character::isDigit)) {
+            return "978" + normalized.substring(0, 9);
+        }
+        if (normalized.length() == 13 && normalized.chars().allMatch(Character::isDigit)) {
+            return normalized.substring(0, 12);
+        }
+        return normalized.toString();
+    }
+}
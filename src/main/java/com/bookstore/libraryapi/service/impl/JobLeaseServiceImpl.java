@@ -0,0 +1,111 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.model.entity.JobLease;
+import com.bookstore.libraryapi.model.repository.JobLeaseRepository;
+import com.bookstore.libraryapi.service.JobLeaseService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Leases stored in the application database, so replicas agree on who runs a job
+ * without an external coordinator. Every statement runs in its own transaction.
+ */
+@Service
+public class JobLeaseServiceImpl implements JobLeaseService {
+
+    private final JobLeaseRepository repository;
+
+    private final String instanceId;
+
+    public JobLeaseServiceImpl(JobLeaseRepository repository,
+                               @Value("${application.cluster.instance-id:}") String instanceId) {
+        this.repository = repository;
+        this.instanceId = StringUtils.hasText(instanceId) ? instanceId : defaultInstanceId();
+    }
+
+    @Override
+    public Optional<JobLease> tryAcquire(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        if (repository.acquire(name, instanceId, now, now.plus(duration)) == 0) {
+            if (repository.existsById(name)) {
+                return Optional.empty();
+            }
+            try {
+                repository.saveAndFlush(JobLease.builder()
+                        .name(name)
+                        .owner(instanceId)
+                        .leasedUntil(now.plus(duration))
+                        .runDate(today)
+                        .lastProcessedId(0L)
+                        .processedCount(0L)
+                        .completed(false)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                return Optional.empty();
+            }
+        }
+        repository.resetForRun(name, instanceId, today);
+        return repository.findById(name);
+    }
+
+    /**
+     * Takes over the unfinished run of an expired lease, keeping its run date and progress. A
+     * finished run, or one that never started, is left to the next {@link #tryAcquire}.
+     */
+    @Override
+    public Optional<JobLease> tryTakeOver(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        if (repository.takeOver(name, instanceId, now, now.plus(duration)) == 0) {
+            return Optional.empty();
+        }
+        return repository.findById(name);
+    }
+
+    @Override
+    public boolean recordProgress(String name, Long lastProcessedId, Long processedCount, Duration duration) {
+        LocalDateTime leasedUntil = LocalDateTime.now().plus(duration);
+        return repository.updateProgress(name, instanceId, lastProcessedId, processedCount, leasedUntil) > 0;
+    }
+
+    @Override
+    public void release(String name) {
+        repository.release(name, instanceId, LocalDateTime.now());
+    }
+
+    @Override
+    public void complete(String name) {
+        repository.complete(name, instanceId, LocalDateTime.now());
+    }
+
+    @Override
+    public List<JobLease> findAll() {
+        return repository.findAll();
+    }
+
+    @Override
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown-host";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
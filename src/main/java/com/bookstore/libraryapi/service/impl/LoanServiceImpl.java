@@ -1,58 +1,235 @@
 package com.bookstore.libraryapi.service.impl;
 
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
 import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
 import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
+import com.bookstore.libraryapi.model.repository.BookRepository;
 import com.bookstore.libraryapi.model.repository.LoanRepository;
 import com.bookstore.libraryapi.service.LoanService;
+import com.bookstore.libraryapi.service.LoanStatisticsService;
 import lombok.AllArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class LoanServiceImpl implements LoanService {
 
+    static final int LOAN_DAYS = 4;
+
     private LoanRepository repository;
 
+    private BookRepository bookRepository;
+
+    private LoanStatisticsService statistics;
+
+    private BookLocks bookLocks;
+
+    /**
+     * Marks the book as lent with a single compare-and-set update on its primary key; when
+     * another loan already holds it the update matches no row and the transaction is rolled back.
+     * Loans of the same book on this instance queue on its lock first, so all but the first of
+     * a rush are turned away by a read instead of an insert that is rolled back.
+     */
     @Override
+    @Transactional
     public Loan save(Loan loan) {
-        if (repository.existsByBookAndNotReturned(loan.getBook())) {
+        Long bookId = loan.getBook().getId();
+        bookLocks.lockUntilCompletion(Collections.singleton(bookId));
+        if (bookRepository.findActiveLoanId(bookId).isPresent()) {
             throw new BusinessException("Book already in use");
         }
-        return repository.save(loan);
+        Loan saved = repository.save(loan);
+        acquire(saved);
+        statistics.loanCreated(saved);
+        return saved;
+    }
+
+    /**
+     * Skips the books already flagged as lent, inserts the remaining loans in JDBC batches and
+     * flags their books with one batched compare-and-set. Loans that lost a race for their
+     * book are removed again. Results are returned in the order of the given loans.
+     */
+    @Override
+    @Transactional
+    public List<BatchItemResultDTO> saveAll(List<Loan> loans) {
+        if (loans.isEmpty()) {
+            return Collections.emptyList();
+        }
+        bookLocks.lockUntilCompletion(loans.stream().map(loan -> loan.getBook().getId()).collect(Collectors.toSet()));
+        Set<Long> booksInUse = new HashSet<>();
+        List<Loan> accepted = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            Book book = loan.getBook();
+            if (book.getActiveLoanId() == null && booksInUse.add(book.getId())) {
+                accepted.add(loan);
+            }
+        }
+        repository.saveAll(accepted);
+        repository.flush();
+
+        int[] acquired = accepted.isEmpty() ? new int[0] : bookRepository.acquireActiveLoans(accepted);
+        List<Loan> lost = new ArrayList<>();
+        for (int i = 0; i < acquired.length; i++) {
+            if (acquired[i] == 0) {
+                lost.add(accepted.get(i));
+            }
+        }
+        if (!lost.isEmpty()) {
+            repository.deleteAll(lost);
+            accepted.removeAll(lost);
+        }
+        accepted.forEach(statistics::loanCreated);
+
+        List<BatchItemResultDTO> results = new ArrayList<>(loans.size());
+        Set<Loan> saved = Collections.newSetFromMap(new IdentityHashMap<>());
+        saved.addAll(accepted);
+        for (int i = 0; i < loans.size(); i++) {
+            Loan loan = loans.get(i);
+            results.add(saved.contains(loan)
+                    ? BatchItemResultDTO.builder().index(i).id(loan.getId()).isbn(loan.getBook().getIsbn()).success(true).build()
+                    : BatchItemResultDTO.builder().index(i).isbn(loan.getBook().getIsbn()).success(false).message("Book already in use").build());
+        }
+        return results;
     }
 
     @Override
+    @Transactional
+    public List<BatchItemResultDTO> updateReturned(List<LoanReturnDTO> returns) {
+        Set<Long> ids = returns.stream().map(LoanReturnDTO::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Loan> loans = ids.isEmpty()
+                ? Collections.emptyMap()
+                : repository.findAllWithBookByIdIn(ids).stream().collect(Collectors.toMap(Loan::getId, Function.identity()));
+        bookLocks.lockUntilCompletion(returns.stream()
+                .filter(dto -> !Boolean.TRUE.equals(dto.getReturned()) && loans.containsKey(dto.getId()))
+                .map(dto -> loans.get(dto.getId()).getBook().getId())
+                .collect(Collectors.toSet()));
+
+        List<BatchItemResultDTO> results = new ArrayList<>(returns.size());
+        List<Long> released = new ArrayList<>();
+        for (int i = 0; i < returns.size(); i++) {
+            LoanReturnDTO dto = returns.get(i);
+            Loan loan = loans.get(dto.getId());
+            if (loan == null) {
+                results.add(BatchItemResultDTO.builder().index(i).id(dto.getId()).success(false).message("Loan not found").build());
+                continue;
+            }
+            boolean wasReturned = Boolean.TRUE.equals(loan.getReturned());
+            if (Boolean.TRUE.equals(dto.getReturned())) {
+                released.add(loan.getId());
+                if (!wasReturned) {
+                    statistics.loanReturned(loan);
+                }
+            } else if (bookRepository.acquireActiveLoan(loan.getBook().getId(), loan.getId()) == 0) {
+                results.add(BatchItemResultDTO.builder().index(i).id(loan.getId()).success(false).message("Book already in use").build());
+                continue;
+            } else if (wasReturned) {
+                statistics.loanReopened(loan);
+            }
+            loan.setReturned(Boolean.TRUE.equals(dto.getReturned()));
+            results.add(BatchItemResultDTO.builder().index(i).id(loan.getId()).success(true).build());
+        }
+        if (!released.isEmpty()) {
+            bookRepository.releaseActiveLoans(released);
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Loan> getById(Long id) {
         return repository.findById(id);
     }
 
+    /**
+     * The loan arrives with its new state already set, so the previous one is read from the book:
+     * a loan is active exactly while its book points back to it.
+     */
     @Override
+    @Transactional
     public Loan update(Loan loan) {
+        if (Boolean.TRUE.equals(loan.getReturned())) {
+            if (bookRepository.releaseActiveLoan(loan.getBook().getId(), loan.getId()) > 0) {
+                statistics.loanReturned(loan);
+            }
+        } else {
+            bookLocks.lockUntilCompletion(Collections.singleton(loan.getBook().getId()));
+            boolean wasActive = Objects.equals(loan.getId(), loan.getBook().getActiveLoanId());
+            acquire(loan);
+            if (!wasActive) {
+                statistics.loanReopened(loan);
+            }
+        }
         return repository.save(loan);
     }
 
+    /**
+     * A filter on a single field goes to its own query, which can use the isbn or customer index;
+     * the combined "isbn or customer" query is only needed when both are given.
+     */
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO filterDTO, Pageable page) {
+        if (filterDTO.getIsbn() != null && filterDTO.getCustomer() == null) {
+            return repository.findByBookIsbn(filterDTO.getIsbn(), page);
+        }
+        if (filterDTO.getIsbn() == null && filterDTO.getCustomer() != null) {
+            return repository.findByCustomer(filterDTO.getCustomer(), page);
+        }
         return repository.findByBookIsbnOrCustomer(filterDTO.getIsbn(), filterDTO.getCustomer(), page);
     }
 
+    /**
+     * Keyset variant of {@link #find}: seeks past {@code lastId} and reads one extra row to
+     * know whether another slice follows, without a count query. Without filter every loan is returned.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Loan> findAfter(LoanFilterDTO filterDTO, Long lastId, int size) {
+        return repository.findAfter(lastId, filterDTO.getIsbn(), filterDTO.getCustomer(), PageRequest.of(0, size));
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return repository.findByBook(book, pageable);
     }
 
     @Override
     public List<Loan> getAllLateloans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
         return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
     }
+
+    @Override
+    public List<LateLoanProjection> getLateLoansAfter(Long lastId, int chunkSize, int shard, int shardCount) {
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
+        return repository.findLateLoansAfter(threeDaysAgo, lastId, shard, shardCount, PageRequest.of(0, chunkSize));
+    }
+
+    private void acquire(Loan loan) {
+        int updated;
+        try {
+            updated = bookRepository.acquireActiveLoan(loan.getBook().getId(), loan.getId());
+        } catch (ConcurrencyFailureException e) {
+            updated = 0;
+        }
+        if (updated == 0) {
+            throw new BusinessException("Book already in use");
+        }
+    }
 }
@@ -0,0 +1,215 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.api.dto.LoanStatsDTO;
+import com.bookstore.libraryapi.api.dto.RankingEntryDTO;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.LoanStatisticsService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps loan counters in memory, moved by the loan service after each commit and rebuilt from
+ * the loan table on startup, every {@code application.stats.rebuild-interval-ms} and on demand.
+ * Overdue loans are counted per loan date, so the count follows the calendar without rescanning
+ * loans. {@link #getStatistics()} returns a snapshot refreshed on a fixed delay, the rankings are
+ * never sorted on a request.
+ * <p>
+ * The counters only move with the loans of this instance. With several instances, the loans of the
+ * others show up at the next rebuild, so a snapshot lags the loan table by at most the rebuild
+ * interval plus the snapshot interval. A rebuild swaps in fresh counters; a loan committed while
+ * its queries run can be missed or counted twice until the next rebuild.
+ */
+@Slf4j
+@Service
+public class LoanStatisticsServiceImpl implements LoanStatisticsService {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int topSize;
+
+    private final boolean rebuildOnStartup;
+
+    private final AtomicReference<Counters> counters = new AtomicReference<>(new Counters());
+
+    private volatile LoanStatsDTO snapshot;
+
+    public LoanStatisticsServiceImpl(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                     @Value("${application.stats.top-size:10}") int topSize,
+                                     @Value("${application.stats.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.topSize = topSize;
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.snapshot = counters.get().snapshot(topSize);
+
+        Gauge.builder("library.loans.total", counters, c -> c.get().total.sum()).register(meterRegistry);
+        Gauge.builder("library.loans.active", counters, c -> c.get().active.sum()).register(meterRegistry);
+        Gauge.builder("library.loans.overdue", counters, c -> c.get().overdue()).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${application.stats.rebuild-interval-ms:300000}",
+            fixedDelayString = "${application.stats.rebuild-interval-ms:300000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    @Override
+    public LoanStatsDTO getStatistics() {
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${application.stats.snapshot-interval-ms:10000}")
+    public void refreshSnapshot() {
+        snapshot = counters.get().snapshot(topSize);
+    }
+
+    @Override
+    public void loanCreated(Loan loan) {
+        String isbn = loan.getBook() == null ? null : loan.getBook().getIsbn();
+        afterCommit(() -> counters.get().created(isbn, loan.getCustomer(), loan.getLoanDate()));
+    }
+
+    @Override
+    public void loanReturned(Loan loan) {
+        afterCommit(() -> counters.get().activeChanged(loan.getLoanDate(), -1));
+    }
+
+    @Override
+    public void loanReopened(Loan loan) {
+        afterCommit(() -> counters.get().activeChanged(loan.getLoanDate(), 1));
+    }
+
+    @Override
+    public LoanStatsDTO rebuild() {
+        long start = System.currentTimeMillis();
+        Counters rebuilt = new Counters();
+        rebuilt.total.add(jdbcTemplate.queryForObject("select count(*) from loan", Long.class));
+        jdbcTemplate.query("select loan_date, count(*) from loan where returned = false group by loan_date", rs -> {
+            rebuilt.active.add(rs.getLong(2));
+            add(rebuilt.activeByDate, rs.getDate(1) == null ? null : rs.getDate(1).toLocalDate(), rs.getLong(2));
+        });
+        jdbcTemplate.query("select b.isbn, count(*) from loan l join book b on b.id = l.id_book group by b.isbn",
+                (RowCallbackHandler) rs -> add(rebuilt.byBook, rs.getString(1), rs.getLong(2)));
+        jdbcTemplate.query("select customer, count(*) from loan group by customer",
+                (RowCallbackHandler) rs -> add(rebuilt.byCustomer, rs.getString(1), rs.getLong(2)));
+        counters.set(rebuilt);
+        refreshSnapshot();
+        log.info("rebuilt loan statistics from {} loans in {} ms", snapshot.getTotalLoans(), System.currentTimeMillis() - start);
+        return snapshot;
+    }
+
+    private static <K> void add(ConcurrentMap<K, LongAdder> counts, K key, long delta) {
+        if (key != null) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    private static class Counters {
+
+        private final LongAdder total = new LongAdder();
+
+        private final LongAdder active = new LongAdder();
+
+        private final ConcurrentMap<LocalDate, LongAdder> activeByDate = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<String, LongAdder> byBook = new ConcurrentHashMap<>();
+
+        private final ConcurrentMap<String, LongAdder> byCustomer = new ConcurrentHashMap<>();
+
+        void created(String isbn, String customer, LocalDate loanDate) {
+            total.increment();
+            activeChanged(loanDate, 1);
+            add(byBook, isbn, 1);
+            add(byCustomer, customer, 1);
+        }
+
+        void activeChanged(LocalDate loanDate, long delta) {
+            active.add(delta);
+            add(activeByDate, loanDate, delta);
+        }
+
+        /**
+         * Active loans older than the loan period, one entry per loan date still holding active loans.
+         */
+        long overdue() {
+            LocalDate due = LocalDate.now().minusDays(LoanServiceImpl.LOAN_DAYS);
+            long overdue = 0;
+            for (Map.Entry<LocalDate, LongAdder> entry : activeByDate.entrySet()) {
+                if (entry.getKey().isBefore(due)) {
+                    overdue += entry.getValue().sum();
+                }
+            }
+            return overdue;
+        }
+
+        LoanStatsDTO snapshot(int topSize) {
+            return LoanStatsDTO.builder()
+                    .totalLoans(total.sum())
+                    .activeLoans(active.sum())
+                    .overdueLoans(overdue())
+                    .topBooks(top(byBook, topSize))
+                    .topCustomers(top(byCustomer, topSize))
+                    .generatedAt(LocalDateTime.now())
+                    .build();
+        }
+
+        /**
+         * The {@code size} largest counts with a bounded heap, most loans first.
+         */
+        private static List<RankingEntryDTO> top(Map<String, LongAdder> counts, int size) {
+            Comparator<RankingEntryDTO> byLoans = Comparator.comparingLong(RankingEntryDTO::getLoans)
+                    .thenComparing(RankingEntryDTO::getKey, Comparator.reverseOrder());
+            PriorityQueue<RankingEntryDTO> heap = new PriorityQueue<>(size + 1, byLoans);
+            counts.forEach((key, count) -> {
+                heap.add(new RankingEntryDTO(key, count.sum()));
+                if (heap.size() > size) {
+                    heap.poll();
+                }
+            });
+            List<RankingEntryDTO> top = new ArrayList<>(heap);
+            top.sort(byLoans.reversed());
+            return top;
+        }
+    }
+}
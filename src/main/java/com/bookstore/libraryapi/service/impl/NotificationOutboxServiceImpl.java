@@ -0,0 +1,111 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.model.entity.LateLoanNotification;
+import com.bookstore.libraryapi.model.entity.NotificationStatus;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
+import com.bookstore.libraryapi.model.repository.LateLoanNotificationRepository;
+import com.bookstore.libraryapi.service.NotificationOutboxService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Service
+public class NotificationOutboxServiceImpl implements NotificationOutboxService {
+
+    private final LateLoanNotificationRepository repository;
+
+    @Value("${application.mail.outbox.claim-timeout-minutes:15}")
+    private long claimTimeoutMinutes;
+
+    @Value("${application.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${application.mail.outbox.initial-backoff-ms:60000}")
+    private long initialBackoffMs;
+
+    @Value("${application.mail.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    public NotificationOutboxServiceImpl(LateLoanNotificationRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Adds one pending notification per late loan, skipping loans that already have
+     * a notification for the given date so re-running the nightly job is harmless.
+     */
+    @Override
+    @Transactional
+    public int enqueue(List<LateLoanProjection> lateLoans, LocalDate notificationDate) {
+        if (lateLoans.isEmpty()) {
+            return 0;
+        }
+        List<Long> loanIds = lateLoans.stream().map(LateLoanProjection::getId).collect(Collectors.toList());
+        Set<Long> notified = new HashSet<>(repository.findNotifiedLoanIds(notificationDate, loanIds));
+
+        List<LateLoanNotification> notifications = lateLoans.stream()
+                .filter(loan -> loan.getCustomerEmail() != null && !notified.contains(loan.getId()))
+                .map(loan -> LateLoanNotification.builder()
+                        .loanId(loan.getId())
+                        .customerEmail(loan.getCustomerEmail())
+                        .notificationDate(notificationDate)
+                        .status(NotificationStatus.PENDING)
+                        .attempts(0)
+                        .build())
+                .collect(Collectors.toList());
+        repository.saveAll(notifications);
+        return notifications.size();
+    }
+
+    /**
+     * Claims up to {@code batchSize} pending notifications that are due, with a fresh token. Claims
+     * left behind by a crashed worker become claimable again once the claim timeout expires.
+     */
+    @Override
+    @Transactional
+    public List<LateLoanNotification> claimBatch(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusMinutes(claimTimeoutMinutes);
+        List<Long> ids = repository.findClaimableIds(now, staleBefore, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String claimToken = UUID.randomUUID().toString();
+        repository.claim(ids, claimToken, now, staleBefore);
+        return repository.findByClaimTokenAndStatus(claimToken, NotificationStatus.CLAIMED);
+    }
+
+    @Override
+    @Transactional
+    public void markSent(LateLoanNotification notification) {
+        repository.markSent(notification.getId(), notification.getClaimToken(), LocalDateTime.now());
+    }
+
+    /**
+     * Puts the notification back after a doubling backoff, so a drain does not spend every attempt
+     * within seconds and a short SMTP outage is waited out instead of failing the whole outbox.
+     */
+    @Override
+    @Transactional
+    public void markFailed(LateLoanNotification notification) {
+        int attempts = notification.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            repository.release(notification.getId(), notification.getClaimToken(), NotificationStatus.FAILED, null);
+            return;
+        }
+        repository.release(notification.getId(), notification.getClaimToken(), NotificationStatus.PENDING,
+                LocalDateTime.now().plus(backoff(attempts), ChronoUnit.MILLIS));
+    }
+
+    long backoff(int attempts) {
+        long backoff = initialBackoffMs << Math.min(attempts - 1, 30);
+        return backoff < 0 ? maxBackoffMs : Math.min(backoff, maxBackoffMs);
+    }
+}
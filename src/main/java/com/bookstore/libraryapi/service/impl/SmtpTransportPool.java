@@ -0,0 +1,96 @@
+package com.bookstore.libraryapi.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Keeps up to {@code pool-size} connected SMTP transports so consecutive batches
+ * reuse an open connection instead of doing a new handshake on every send.
+ */
+@Slf4j
+@Component
+public class SmtpTransportPool {
+
+    private final JavaMailSenderImpl mailSender;
+
+    private final BlockingQueue<Transport> idleTransports;
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             @Value("${application.mail.async.transport-pool-size:4}") int poolSize) {
+        this.mailSender = (JavaMailSenderImpl) mailSender;
+        this.idleTransports = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    public void send(SimpleMailMessage message) throws MessagingException {
+        MimeMessage mimeMessage = mailSender.createMimeMessage();
+        message.copyTo(new MimeMailMessage(mimeMessage));
+        mimeMessage.saveChanges();
+
+        Transport transport = borrow();
+        try {
+            transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        } catch (MessagingException e) {
+            close(transport);
+            throw e;
+        }
+        release(transport);
+    }
+
+    public int getIdleCount() {
+        return idleTransports.size();
+    }
+
+    private Transport borrow() throws MessagingException {
+        Transport transport = idleTransports.poll();
+        while (transport != null && !transport.isConnected()) {
+            close(transport);
+            transport = idleTransports.poll();
+        }
+        if (transport != null) {
+            return transport;
+        }
+        transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(),
+                emptyToNull(mailSender.getUsername()), emptyToNull(mailSender.getPassword()));
+        return transport;
+    }
+
+    private void release(Transport transport) {
+        if (!idleTransports.offer(transport)) {
+            close(transport);
+        }
+    }
+
+    private void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("failed to close smtp transport", e);
+        }
+    }
+
+    private String emptyToNull(String value) {
+        return StringUtils.hasLength(value) ? value : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            close(transport);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+create sequence book_seq start with 1 increment by 50;
+create sequence loan_seq start with 1 increment by 50;
+create sequence hibernate_sequence start with 1 increment by 1;
+
+create table book (
+    id bigint not null,
+    title varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    active_loan_id bigint,
+    primary key (id)
+);
+
+create index idx_book_active_loan on book (active_loan_id);
+
+create table loan (
+    id bigint not null,
+    customer varchar(255),
+    customer_email varchar(255),
+    id_book bigint,
+    loan_date date,
+    returned boolean,
+    primary key (id),
+    constraint fk_loan_book foreign key (id_book) references book (id)
+);
+
+create table late_loan_notification (
+    id bigint not null,
+    id_loan bigint,
+    customer_email varchar(255),
+    notification_date date,
+    status varchar(255),
+    claim_token varchar(255),
+    claimed_at timestamp,
+    sent_at timestamp,
+    attempts integer,
+    primary key (id),
+    constraint uk_late_loan_notification_loan_date unique (id_loan, notification_date)
+);
+
+create table job_lease (
+    name varchar(255) not null,
+    owner varchar(255),
+    leased_until timestamp,
+    run_date date,
+    last_processed_id bigint,
+    processed_count bigint,
+    primary key (name)
+);
@@ -0,0 +1,11 @@
+-- the duplicate check on create relies on this constraint instead of a lookup before the insert
+alter table book add constraint ux_book_isbn unique (isbn);
+
+-- "not returned" becomes a plain equality so (returned, loan_date) can serve the late loan scans
+update loan set returned = false where returned is null;
+alter table loan alter column returned set default false;
+alter table loan alter column returned set not null;
+
+create index idx_loan_book on loan (id_book);
+create index idx_loan_customer on loan (customer);
+create index idx_loan_returned_loan_date on loan (returned, loan_date);
@@ -0,0 +1,2 @@
+-- optimistic lock of book updates, also served as the ETag of the book resources
+alter table book add column version bigint default 0 not null;
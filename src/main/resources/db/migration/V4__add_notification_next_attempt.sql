@@ -0,0 +1,2 @@
+-- a failed notification waits for its backoff before it can be claimed again
+alter table late_loan_notification add column next_attempt_at timestamp;
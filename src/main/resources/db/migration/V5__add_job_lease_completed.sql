@@ -0,0 +1,2 @@
+-- tells a run that stopped half way, which another replica resumes, from a finished one
+alter table job_lease add column completed boolean default false not null;
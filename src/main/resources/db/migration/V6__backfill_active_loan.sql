@@ -0,0 +1,4 @@
+-- books lent before active_loan_id was kept up to date: without their open loan the check would lend them again
+update book set active_loan_id = (
+    select max(l.id) from loan l where l.id_book = book.id and l.returned = false
+);
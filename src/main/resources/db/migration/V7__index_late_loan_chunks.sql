@@ -0,0 +1,2 @@
+-- the late loan job pages by id; with (returned, loan_date) alone every chunk sorted all the late loans
+create index idx_loan_returned_id on loan (returned, id);
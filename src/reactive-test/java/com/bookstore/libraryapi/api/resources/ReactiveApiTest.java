@@ -0,0 +1,290 @@
+package com.bookstore.libraryapi.api.resources;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.api.dto.ReturnedLoanDTO;
+import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.impl.IsbnBloomFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the reactive stack end to end on R2DBC, checking it keeps the contract of the servlet controllers.
+ */
+@ActiveProfiles({"test", "reactive"})
+// the test bootstrapper only reads the web type from the test properties, not from the profile file
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+public class ReactiveApiTest {
+
+    private static final String BOOK_API = "/api/books";
+
+    private static final String LOAN_API = "/api/loans";
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    IsbnBloomFilter isbnFilter;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private BookDto createBook(String isbn, String title) {
+        return client.post().uri(BOOK_API)
+                .bodyValue(BookDto.builder().isbn(isbn).author("Artur").title(title).build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDto.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Test
+    @DisplayName("should create, read, update and delete a book")
+    public void bookLifecycleTest() {
+        BookDto created = createBook("reactive-001", "As aventuras");
+
+        client.get().uri(BOOK_API + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("isbn").isEqualTo("reactive-001")
+                .jsonPath("title").isEqualTo("As aventuras");
+
+        client.put().uri(BOOK_API + "/" + created.getId() + "?title=Outro&author=Autor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("title").isEqualTo("Outro");
+
+        client.delete().uri(BOOK_API + "/" + created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get().uri(BOOK_API + "/" + created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("should reject a book with a duplicated isbn")
+    public void duplicatedIsbnTest() {
+        createBook("reactive-002", "Primeiro");
+
+        client.post().uri(BOOK_API)
+                .bodyValue(BookDto.builder().isbn("reactive-002").author("Artur").title("Segundo").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("isbn já cadastrado");
+    }
+
+    @Test
+    @DisplayName("should page, walk with a cursor and stream the books of a filter")
+    public void listBooksTest() {
+        for (int i = 0; i < 3; i++) {
+            createBook("listing-" + i, "Listagem " + i);
+        }
+
+        client.get().uri(BOOK_API + "?title=listagem&page=0&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(2)
+                .jsonPath("totalElements").isEqualTo(3)
+                .jsonPath("pageable.pageSize").isEqualTo(2);
+
+        client.get().uri(BOOK_API + "?title=listagem&cursor=&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content.length()").isEqualTo(2)
+                .jsonPath("hasNext").isEqualTo(true)
+                .jsonPath("nextCursor").isNotEmpty();
+
+        List<BookDto> streamed = client.get().uri(BOOK_API + "?title=listagem")
+                .accept(MediaType.APPLICATION_STREAM_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(BookDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+        assertThat(streamed).extracting(BookDto::getIsbn).containsExactly("listing-0", "listing-1", "listing-2");
+    }
+
+    @Test
+    @DisplayName("should lend a book once until it is returned")
+    public void lendAndReturnTest() {
+        BookDto book = createBook("reactive-003", "Emprestado");
+        LoanDto loan = LoanDto.builder().isbn(book.getIsbn()).customer("Fulano").email("fulano@email.com").build();
+
+        Long loanId = client.post().uri(LOAN_API)
+                .bodyValue(loan)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Long.class)
+                .returnResult()
+                .getResponseBody();
+
+        client.post().uri(LOAN_API)
+                .bodyValue(loan)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("errors[0]").isEqualTo("Book already in use");
+
+        client.get().uri(LOAN_API + "?customer=Fulano")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("content[0].isbn").isEqualTo("reactive-003")
+                .jsonPath("totalElements").isEqualTo(1);
+
+        client.patch().uri(LOAN_API + "/" + loanId)
+                .bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isOk();
+
+        client.post().uri(LOAN_API)
+                .bodyValue(loan)
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    @Test
+    @DisplayName("should report each item of a loan batch")
+    public void loanBatchTest() {
+        createBook("reactive-004", "Lote");
+        LoanDto loan = LoanDto.builder().isbn("reactive-004").customer("Ciclano").email("ciclano@email.com").build();
+        LoanDto missing = LoanDto.builder().isbn("missing-isbn").customer("Ciclano").email("ciclano@email.com").build();
+
+        client.post().uri(LOAN_API + "/batch")
+                .bodyValue(new LoanDto[]{loan, loan, missing})
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("[0].success").isEqualTo(true)
+                .jsonPath("[1].success").isEqualTo(false)
+                .jsonPath("[1].message").isEqualTo("Book already in use")
+                .jsonPath("[2].index").isEqualTo(2)
+                .jsonPath("[2].message").isEqualTo("Book not found for passed isbn");
+    }
+
+    @Test
+    @DisplayName("should import the rows of a bulk upload as they arrive and stop at a malformed one")
+    public void importBooksTest() {
+        Flux<String> rows = Flux.range(0, 2_000).map(i ->
+                "{\"isbn\": \"reactive-import-" + i + "\", \"author\": \"Artur\", \"title\": \"Importado " + i + "\"}\n");
+
+        client.post().uri(BOOK_API + "/bulk")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(rows, String.class)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("received").isEqualTo(2_000)
+                .jsonPath("imported").isEqualTo(2_000);
+
+        client.post().uri(BOOK_API + "/bulk")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .bodyValue("{\"isbn\": \"reactive-import-broken\", ")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("imported").isEqualTo(0)
+                .jsonPath("errors[0].message").value(message -> assertThat((String) message).startsWith("malformed input"));
+    }
+
+    @Test
+    @DisplayName("should answer conditional requests with the entity tags of the servlet stack")
+    public void entityTagTest() {
+        BookDto created = createBook("reactive-005", "Condicional");
+        String etag = client.get().uri(BOOK_API + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .returnResult(BookDto.class)
+                .getResponseHeaders().getETag();
+
+        client.get().uri(BOOK_API + "/" + created.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        client.put().uri(BOOK_API + "/" + created.getId() + "?title=Outro&author=Autor")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, updated -> assertThat(updated).isNotEqualTo(etag));
+        client.put().uri(BOOK_API + "/" + created.getId() + "?title=Terceiro&author=Autor")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        client.get().uri(BOOK_API + "?isbn=reactive-005")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG);
+    }
+
+    @Test
+    @DisplayName("should keep the isbn filter, the book cache and the loan statistics of the blocking services in step")
+    public void sharedStateTest() {
+        isbnFilter.load();
+        assertThat(isbnFilter.mightContain("reactive-006")).isFalse();
+        BookDto created = createBook("reactive-006", "Compartilhado");
+        assertThat(isbnFilter.mightContain("reactive-006")).isTrue();
+
+        assertThat(bookService.getById(created.getId())).hasValueSatisfying(book ->
+                assertThat(book.getTitle()).isEqualTo("Compartilhado"));
+        client.put().uri(BOOK_API + "/" + created.getId() + "?title=Outro&author=Autor")
+                .exchange()
+                .expectStatus().isOk();
+        assertThat(bookService.getById(created.getId())).hasValueSatisfying(book ->
+                assertThat(book.getTitle()).isEqualTo("Outro"));
+
+        double total = gauge("library.loans.total");
+        double active = gauge("library.loans.active");
+        Long loanId = client.post().uri(LOAN_API)
+                .bodyValue(LoanDto.builder().isbn("reactive-006").customer("Beltrano").email("beltrano@email.com").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Long.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(gauge("library.loans.total")).isEqualTo(total + 1);
+        assertThat(gauge("library.loans.active")).isEqualTo(active + 1);
+
+        client.patch().uri(LOAN_API + "/" + loanId)
+                .bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isOk();
+        client.patch().uri(LOAN_API + "/" + loanId)
+                .bodyValue(ReturnedLoanDTO.builder().returned(true).build())
+                .exchange()
+                .expectStatus().isOk();
+        assertThat(gauge("library.loans.active")).isEqualTo(active);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
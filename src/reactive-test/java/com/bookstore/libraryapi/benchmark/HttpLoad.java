@@ -0,0 +1,81 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.benchmark.BlockingHttpLoad.Result;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Non-blocking HTTP client for the load tests, keeping up to {@code connections} requests in flight
+ * against a running application on its own event loops, so one client holds thousands of connections.
+ * <p>
+ * The loops and the channel type are set on the bootstrap directly: left to {@code LoopResources}, with or
+ * without {@code runOn}, Reactor Netty 0.9.8 picks the channel type on every request by opening a socket it
+ * never closes, which ran the client out of file descriptors long before it reached the connection count.
+ */
+final class HttpLoad implements AutoCloseable {
+
+    private final EventLoopGroup loops = new NioEventLoopGroup(0, new DefaultThreadFactory("load-client"));
+
+    private final ConnectionProvider provider;
+
+    private final HttpClient client;
+
+    private final int connections;
+
+    HttpLoad(ConfigurableApplicationContext context, int connections) {
+        this.connections = connections;
+        this.provider = ConnectionProvider.builder("load")
+                .maxConnections(connections)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        this.client = HttpClient.create(provider)
+                .tcpConfiguration(tcp -> tcp.bootstrap(bootstrap -> bootstrap.group(loops).channel(NioSocketChannel.class)))
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+    }
+
+    /**
+     * Sends {@code requests} GET requests to the paths built by {@code path} from the request index;
+     * anything but {@code expectedStatus} counts as an error.
+     */
+    Result fire(int requests, int expectedStatus, IntFunction<String> path) {
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        Flux.range(0, requests)
+                .flatMap(i -> {
+                    long sent = System.nanoTime();
+                    return client.get()
+                            .uri(path.apply(i))
+                            .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                            .doOnNext(status -> {
+                                if (status != expectedStatus) {
+                                    errors.incrementAndGet();
+                                }
+                            })
+                            .onErrorResume(e -> {
+                                errors.incrementAndGet();
+                                return Mono.empty();
+                            })
+                            .doFinally(signal -> latencies[i] = System.nanoTime() - sent);
+                }, connections)
+                .blockLast();
+        return new Result(latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() {
+        provider.disposeLater().block();
+        loops.shutdownGracefully().syncUninterruptibly();
+    }
+}
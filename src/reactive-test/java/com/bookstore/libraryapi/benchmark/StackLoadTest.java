@@ -0,0 +1,56 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.benchmark.BlockingHttpLoad.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires the same book and loan listings at the servlet stack and at the {@code reactive} one, keeping
+ * {@code benchmark.connections} connections open at once, and logs latency and throughput of each. Run with
+ * {@code mvn test -Preactive -Dtest=StackLoadTest -Dbenchmark=true -DargLine=-Xmx2g}; the client and the server
+ * share this JVM, so each connection takes two file descriptors and {@code ulimit -n} has to be above twice
+ * the connections.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class StackLoadTest {
+
+    private static final int BOOKS = 5_000;
+
+    @Test
+    @DisplayName("should serve the listings of both stacks under the same concurrent load")
+    public void stackLoadTest() {
+        int connections = Integer.getInteger("benchmark.connections", 10_000);
+        int requests = Integer.getInteger("benchmark.requests", connections * 5);
+
+        Result servlet = load(connections, requests);
+        Result reactive = load(connections, requests, "reactive");
+
+        log.info("{} requests over {} connections", requests, connections);
+        log.info("servlet:  {}", servlet);
+        log.info("reactive: {}", reactive);
+        assertThat(reactive.errors).isZero();
+    }
+
+    private static Result load(int connections, int requests, String... profiles) {
+        ConfigurableApplicationContext context = BenchmarkApplication.start(BOOKS, profiles);
+        try (HttpLoad load = new HttpLoad(context, connections)) {
+            // warm up the handlers and the connection pool before measuring
+            load.fire(Math.min(requests, connections), 200, StackLoadTest::listing);
+            return load.fire(requests, 200, StackLoadTest::listing);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static String listing(int request) {
+        return request % 2 == 0
+                ? "/api/books?author=author-" + request % 500 + "&size=10"
+                : "/api/loans?customer=" + BenchmarkApplication.customer(request) + "&size=10";
+    }
+}
@@ -0,0 +1,228 @@
+package com.bookstore.libraryapi.api.resource;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.BookImportResultDTO;
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
+import com.bookstore.libraryapi.api.dto.CursorPageDTO;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.service.BookImportService;
+import com.bookstore.libraryapi.service.BookSearchService;
+import com.bookstore.libraryapi.service.ReactiveBookService;
+import com.bookstore.libraryapi.service.ReactiveLoanService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive version of {@link BookController} with the same contract, entity tags included, plus a
+ * streamed listing. Import and search still run on the blocking services, on the bounded elastic scheduler.
+ */
+@RestController
+@RequestMapping("/api/books")
+@Profile("reactive")
+@Slf4j
+public class ReactiveBookController {
+
+    private static final int IMPORT_PIPE_SIZE = 64 * 1024;
+
+    @Autowired
+    private ReactiveBookService bookService;
+
+    @Autowired
+    private ReactiveLoanService loanService;
+
+    @Autowired
+    private DtoMapper dtoMapper;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${application.http.cache-control.book:no-cache}")
+    private String bookCacheControl;
+
+    @Value("${application.http.cache-control.books:no-cache}")
+    private String booksCacheControl;
+
+    @PostMapping()
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDto> createBook(@RequestBody @Validated BookDto bookDto) {
+        log.info("creating a book for isbn {}", bookDto.getIsbn());
+        return bookService.save(dtoMapper.toEntity(bookDto)).map(dtoMapper::toDto);
+    }
+
+    /**
+     * Parses the rows as they arrive, like the servlet endpoint: the body is written into a pipe by one
+     * bounded elastic thread and read by another, so an upload holds at most the pipe and a few buffers.
+     * An upload that breaks off stops the import as malformed input instead of passing for a complete one.
+     */
+    @PostMapping(value = "bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public Mono<BookImportResultDTO> importBooks(ServerHttpRequest request) {
+        log.info("importing books");
+        AtomicReference<Throwable> uploadFailure = new AtomicReference<>();
+        return Mono.using(() -> new PipedInputStream(IMPORT_PIPE_SIZE), input -> {
+            PipedOutputStream output = new PipedOutputStream() {
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    super.write(buffer, offset, length);
+                    // wakes the parser now, otherwise it polls the pipe once a second
+                    flush();
+                }
+            };
+            try {
+                output.connect(input);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            Mono<Boolean> upload = DataBufferUtils.write(request.getBody().publishOn(Schedulers.boundedElastic(), 1), output)
+                    .map(DataBufferUtils::release)
+                    .doOnError(uploadFailure::set)
+                    .doFinally(signal -> closeQuietly(output))
+                    .then(Mono.just(true));
+            Mono<BookImportResultDTO> parse = Mono.fromCallable(() -> importBooks(new FilterInputStream(input) {
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read < 0 && uploadFailure.get() != null) {
+                        throw new IOException("upload broke off", uploadFailure.get());
+                    }
+                    return read;
+                }
+            })).subscribeOn(Schedulers.boundedElastic());
+            return Mono.zip(parse, upload, (result, uploaded) -> result);
+        }, ReactiveBookController::closeQuietly);
+    }
+
+    @GetMapping("search")
+    public Mono<List<BookSearchResultDTO>> search(@RequestParam("q") String query,
+                                                  @RequestParam(defaultValue = "20") int size) {
+        return Mono.fromCallable(() -> bookSearchService.search(query, size)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<BookDto>> getBook(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.info("fetching book with id {}", id);
+        return findBook(id).map(book ->
+                EntityTags.conditional(ifNoneMatch, EntityTags.of(book), bookCacheControl, () -> dtoMapper.toDto(book)));
+    }
+
+    @DeleteMapping("{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteBook(@PathVariable Long id) {
+        log.info("deleting book with id {}", id);
+        return findBook(id).flatMap(bookService::delete);
+    }
+
+    @PutMapping("{id}")
+    public Mono<ResponseEntity<BookDto>> updateBook(@PathVariable Long id, BookDto dto,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        log.info("updating book with id {}", id);
+        return findBook(id)
+                .flatMap(current -> {
+                    if (!EntityTags.matches(ifMatch, EntityTags.of(current))) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book was modified"));
+                    }
+                    return bookService.update(current.toBuilder().author(dto.getAuthor()).title(dto.getTitle()).build());
+                })
+                // another update committed between the lookup and this one
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new ResponseStatusException(
+                        ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT, "Book was modified"))
+                .map(book -> ResponseEntity.ok().eTag(EntityTags.of(book)).body(dtoMapper.toDto(book)));
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<Page<BookDto>>> find(BookDto dto, Pageable pageRequest,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Book filter = dtoMapper.toEntity(dto);
+        return bookService.find(filter, pageRequest).map(page -> EntityTags.conditional(ifNoneMatch, EntityTags.of(page),
+                booksCacheControl, () -> page.map(dtoMapper::toDto)));
+    }
+
+    /**
+     * Every matching book as a stream of JSON documents, written as the rows are read; a slow
+     * client holds back the database reads instead of the whole listing being buffered.
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_STREAM_JSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<BookDto> stream(BookDto dto) {
+        return bookService.stream(dtoMapper.toEntity(dto)).map(dtoMapper::toDto);
+    }
+
+    @GetMapping(params = "cursor")
+    public Mono<CursorPageDTO<BookDto>> findAfter(BookDto dto, @RequestParam String cursor,
+                                                  @RequestParam(defaultValue = "20") int size) {
+        Book filter = dtoMapper.toEntity(dto);
+        return bookService.findAfter(filter, Cursors.decode(cursor), Cursors.pageSize(size))
+                .map(slice -> {
+                    List<Book> books = slice.getContent();
+                    return CursorPageDTO.<BookDto>builder()
+                            .content(books.stream().map(dtoMapper::toDto).collect(Collectors.toList()))
+                            .size(books.size())
+                            .hasNext(slice.hasNext())
+                            .nextCursor(slice.hasNext() ? Cursors.encode(books.get(books.size() - 1).getId()) : null)
+                            .build();
+                });
+    }
+
+    @GetMapping("{id}/loans")
+    public Mono<Page<LoanDto>> loansByBook(@PathVariable Long id, Pageable pageable) {
+        return findBook(id)
+                .flatMap(book -> loanService.getLoansByBook(book, pageable))
+                .map(page -> page.map(dtoMapper::toDto));
+    }
+
+    private Mono<Book> findBook(Long id) {
+        return bookService.getById(id).switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    private BookImportResultDTO importBooks(InputStream input) {
+        try (MappingIterator<BookDto> books = objectMapper.readerFor(BookDto.class).readValues(input)) {
+            return bookImportService.importBooks(books);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("could not close the import pipe", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.bookstore.libraryapi.api.resource;
+
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
+import com.bookstore.libraryapi.api.dto.CursorPageDTO;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
+import com.bookstore.libraryapi.api.dto.ReturnedLoanDTO;
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
+import com.bookstore.libraryapi.exception.BusinessException;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.ReactiveBookService;
+import com.bookstore.libraryapi.service.ReactiveLoanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive version of {@link LoanController} with the same contract.
+ */
+@RestController
+@RequestMapping("/api/loans")
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveLoanController {
+
+    private final ReactiveLoanService loanService;
+
+    private final ReactiveBookService bookService;
+
+    private final DtoMapper dtoMapper;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Long> create(@RequestBody LoanDto dto) {
+        return bookService.getByIsbn(dto.getIsbn())
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn")))
+                .flatMap(book -> loanService.save(newLoan(dto, book)))
+                .map(Loan::getId);
+    }
+
+    /**
+     * Lends the books one after the other, each in its own transaction, reporting every item.
+     */
+    @PostMapping("batch")
+    public Mono<List<BatchItemResultDTO>> createBatch(@RequestBody List<LoanDto> dtos) {
+        return Flux.fromIterable(dtos)
+                .index()
+                .concatMap(item -> {
+                    int index = item.getT1().intValue();
+                    LoanDto dto = item.getT2();
+                    return bookService.getByIsbn(dto.getIsbn())
+                            .flatMap(book -> loanService.save(newLoan(dto, book))
+                                    .map(loan -> BatchItemResultDTO.builder().index(index).id(loan.getId())
+                                            .isbn(dto.getIsbn()).success(true).build())
+                                    .onErrorResume(BusinessException.class, e -> Mono.just(BatchItemResultDTO.builder()
+                                            .index(index).isbn(dto.getIsbn()).success(false).message(e.getMessage()).build())))
+                            .defaultIfEmpty(BatchItemResultDTO.builder().index(index).isbn(dto.getIsbn()).success(false)
+                                    .message("Book not found for passed isbn").build());
+                })
+                .collectList();
+    }
+
+    @PatchMapping("{id}")
+    public Mono<Void> returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+        return loanService.getById(id)
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(loan -> {
+                    loan.setReturned(Boolean.TRUE.equals(dto.getReturned()));
+                    return loanService.update(loan);
+                })
+                .then();
+    }
+
+    @PatchMapping("batch")
+    public Mono<List<BatchItemResultDTO>> returnBooks(@RequestBody List<LoanReturnDTO> dtos) {
+        return loanService.updateReturned(dtos).collectList();
+    }
+
+    @GetMapping
+    public Mono<Page<LoanDto>> findLoan(LoanFilterDTO dto, Pageable pageRequest) {
+        return loanService.find(dto, pageRequest).map(page -> page.map(dtoMapper::toDto));
+    }
+
+    @GetMapping(params = "cursor")
+    public Mono<CursorPageDTO<LoanDto>> findLoanAfter(LoanFilterDTO dto, @RequestParam String cursor,
+                                                      @RequestParam(defaultValue = "20") int size) {
+        return loanService.findAfter(dto, Cursors.decode(cursor), Cursors.pageSize(size))
+                .map(slice -> {
+                    List<Loan> loans = slice.getContent();
+                    return CursorPageDTO.<LoanDto>builder()
+                            .content(loans.stream().map(dtoMapper::toDto).collect(Collectors.toList()))
+                            .size(loans.size())
+                            .hasNext(slice.hasNext())
+                            .nextCursor(slice.hasNext() ? Cursors.encode(loans.get(loans.size() - 1).getId()) : null)
+                            .build();
+                });
+    }
+
+    private Loan newLoan(LoanDto dto, Book book) {
+        Loan loan = dtoMapper.toEntity(dto);
+        loan.setBook(book);
+        loan.setLoanDate(LocalDate.now());
+        return loan;
+    }
+}
@@ -0,0 +1,170 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Non-blocking access to the {@code book} table for the reactive stack. Writes the same rows and
+ * sequence as {@link BookRepository}; the prefix filters expect patterns already escaped and lowercased.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveBookRepository {
+
+    private static final String BOOK_COLUMNS = "b.id, b.title, b.author, b.isbn, b.active_loan_id, b.version";
+
+    private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", "b.id");
+        SORT_COLUMNS.put("title", "b.title");
+        SORT_COLUMNS.put("author", "b.author");
+        SORT_COLUMNS.put("isbn", "b.isbn");
+    }
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveBookRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Book> insert(Book book) {
+        return databaseClient.execute("select nextval('book_seq')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> databaseClient.execute("insert into book (id, title, author, isbn) values (:id, :title, :author, :isbn)")
+                        .bind("id", id)
+                        .bind("title", book.getTitle())
+                        .bind("author", book.getAuthor())
+                        .bind("isbn", book.getIsbn())
+                        .then()
+                        .thenReturn(Book.builder().id(id).title(book.getTitle()).author(book.getAuthor()).isbn(book.getIsbn())
+                                .version(0L).build()));
+    }
+
+    /**
+     * Compare-and-set on the version column, like the {@code @Version} check of JPA: matches no row
+     * when another update committed since the book was read.
+     */
+    public Mono<Integer> update(Book book) {
+        return databaseClient.execute("update book set title = :title, author = :author, version = version + 1 " +
+                "where id = :id and version = :version")
+                .bind("title", book.getTitle())
+                .bind("author", book.getAuthor())
+                .bind("id", book.getId())
+                .bind("version", book.getVersion())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteById(Long id) {
+        return databaseClient.execute("delete from book where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Book> findById(Long id) {
+        return databaseClient.execute("select " + BOOK_COLUMNS + " from book b where b.id = :id")
+                .bind("id", id)
+                .map(ReactiveBookRepository::toBook)
+                .one();
+    }
+
+    public Mono<Book> findByIsbn(String isbn) {
+        return databaseClient.execute("select " + BOOK_COLUMNS + " from book b where b.isbn = :isbn")
+                .bind("isbn", isbn)
+                .map(ReactiveBookRepository::toBook)
+                .one();
+    }
+
+    public Flux<Book> find(String title, String author, String isbn, Pageable pageable) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        String sql = "select " + BOOK_COLUMNS + " from book b" + where(title, author, isbn, bindings)
+                + SqlPaging.orderBy(pageable.getSort(), SORT_COLUMNS, "b.id")
+                + " limit :limit offset :offset";
+        bindings.put("limit", pageable.getPageSize());
+        bindings.put("offset", pageable.getOffset());
+        return SqlPaging.bindAll(databaseClient.execute(sql), bindings)
+                .map(ReactiveBookRepository::toBook)
+                .all();
+    }
+
+    public Mono<Long> count(String title, String author, String isbn) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        String sql = "select count(*) from book b" + where(title, author, isbn, bindings);
+        return SqlPaging.bindAll(databaseClient.execute(sql), bindings)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * Keyset read ordered by id, also used without a limit to stream a whole listing.
+     */
+    public Flux<Book> findAfter(Long lastId, String title, String author, String isbn, int limit) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("lastId", lastId);
+        String where = where(title, author, isbn, bindings);
+        String sql = "select " + BOOK_COLUMNS + " from book b"
+                + (where.isEmpty() ? " where" : where + " and") + " b.id > :lastId order by b.id"
+                + (limit > 0 ? " limit " + limit : "");
+        return SqlPaging.bindAll(databaseClient.execute(sql), bindings)
+                .map(ReactiveBookRepository::toBook)
+                .all();
+    }
+
+    public Mono<Integer> acquireActiveLoan(Long bookId, Long loanId) {
+        return databaseClient.execute("update book set active_loan_id = :loanId " +
+                "where id = :bookId and (active_loan_id is null or active_loan_id = :loanId)")
+                .bind("loanId", loanId)
+                .bind("bookId", bookId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> releaseActiveLoan(Long bookId, Long loanId) {
+        return databaseClient.execute("update book set active_loan_id = null where id = :bookId and active_loan_id = :loanId")
+                .bind("bookId", bookId)
+                .bind("loanId", loanId)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Book toBook(Row row) {
+        return Book.builder()
+                .id(row.get("id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .activeLoanId(row.get("active_loan_id", Long.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+
+    private static String where(String title, String author, String isbn, Map<String, Object> bindings) {
+        StringBuilder where = new StringBuilder();
+        appendLike(where, bindings, "title", title);
+        appendLike(where, bindings, "author", author);
+        appendLike(where, bindings, "isbn", isbn);
+        return where.toString();
+    }
+
+    private static void appendLike(StringBuilder where, Map<String, Object> bindings, String column, String pattern) {
+        if (pattern == null) {
+            return;
+        }
+        where.append(where.length() == 0 ? " where " : " and ")
+                .append("lower(b.").append(column).append(") like :").append(column).append(" escape '\\'");
+        bindings.put(column, pattern);
+    }
+}
@@ -0,0 +1,163 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Non-blocking access to the {@code loan} table for the reactive stack. Every read joins the
+ * book of the loan, like the fetch joins of {@link LoanRepository}.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveLoanRepository {
+
+    private static final String SELECT_LOANS = "select l.id, l.customer, l.customer_email, l.loan_date, l.returned, " +
+            "b.id as book_id, b.title, b.author, b.isbn, b.active_loan_id from loan l join book b on b.id = l.id_book";
+
+    private static final Map<String, String> SORT_COLUMNS = new HashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", "l.id");
+        SORT_COLUMNS.put("customer", "l.customer");
+        SORT_COLUMNS.put("loanDate", "l.loan_date");
+    }
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveLoanRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Loan> insert(Loan loan) {
+        return databaseClient.execute("select nextval('loan_seq')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> databaseClient.execute("insert into loan (id, customer, customer_email, id_book, loan_date, returned) " +
+                        "values (:id, :customer, :email, :bookId, :loanDate, false)")
+                        .bind("id", id)
+                        .bind("customer", loan.getCustomer())
+                        .bind("email", loan.getCustomerEmail())
+                        .bind("bookId", loan.getBook().getId())
+                        .bind("loanDate", loan.getLoanDate())
+                        .then()
+                        .thenReturn(Loan.builder().id(id).customer(loan.getCustomer()).customerEmail(loan.getCustomerEmail())
+                                .book(loan.getBook()).loanDate(loan.getLoanDate()).returned(false).build()));
+    }
+
+    public Mono<Integer> updateReturned(Long id, boolean returned) {
+        return databaseClient.execute("update loan set returned = :returned where id = :id")
+                .bind("returned", returned)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Loan> findById(Long id) {
+        return databaseClient.execute(SELECT_LOANS + " where l.id = :id")
+                .bind("id", id)
+                .map(ReactiveLoanRepository::toLoan)
+                .one();
+    }
+
+    /**
+     * Same filter as {@link LoanRepository#findByBookIsbnOrCustomer} and its single field variants:
+     * loans of the book with the isbn or of the customer, whichever are given.
+     */
+    public Flux<Loan> find(String isbn, String customer, Pageable pageable) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        String sql = SELECT_LOANS + where(isbn, customer, bindings)
+                + SqlPaging.orderBy(pageable.getSort(), SORT_COLUMNS, "l.id")
+                + " limit :limit offset :offset";
+        bindings.put("limit", pageable.getPageSize());
+        bindings.put("offset", pageable.getOffset());
+        return SqlPaging.bindAll(databaseClient.execute(sql), bindings)
+                .map(ReactiveLoanRepository::toLoan)
+                .all();
+    }
+
+    public Mono<Long> count(String isbn, String customer) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        String sql = "select count(*) from loan l join book b on b.id = l.id_book" + where(isbn, customer, bindings);
+        return SqlPaging.bindAll(databaseClient.execute(sql), bindings)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    /**
+     * Keyset read ordered by id; without filter every loan is returned, like {@link LoanRepository#findAfter}.
+     */
+    public Flux<Loan> findAfter(Long lastId, String isbn, String customer, int limit) {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("lastId", lastId);
+        String where = isbn == null && customer == null ? "" : where(isbn, customer, bindings);
+        String sql = SELECT_LOANS + (where.isEmpty() ? " where" : where + " and") + " l.id > :lastId order by l.id limit " + limit;
+        return SqlPaging.bindAll(databaseClient.execute(sql), bindings)
+                .map(ReactiveLoanRepository::toLoan)
+                .all();
+    }
+
+    public Flux<Loan> findByBook(Long bookId, Pageable pageable) {
+        return databaseClient.execute(SELECT_LOANS + " where l.id_book = :bookId"
+                + SqlPaging.orderBy(pageable.getSort(), SORT_COLUMNS, "l.id") + " limit :limit offset :offset")
+                .bind("bookId", bookId)
+                .bind("limit", pageable.getPageSize())
+                .bind("offset", pageable.getOffset())
+                .map(ReactiveLoanRepository::toLoan)
+                .all();
+    }
+
+    public Mono<Long> countByBook(Long bookId) {
+        return databaseClient.execute("select count(*) from loan l where l.id_book = :bookId")
+                .bind("bookId", bookId)
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    private static String where(String isbn, String customer, Map<String, Object> bindings) {
+        if (isbn != null && customer != null) {
+            bindings.put("isbn", isbn);
+            bindings.put("customer", customer);
+            return " where (b.isbn = :isbn or l.customer = :customer)";
+        }
+        if (isbn != null) {
+            bindings.put("isbn", isbn);
+            return " where b.isbn = :isbn";
+        }
+        if (customer != null) {
+            bindings.put("customer", customer);
+            return " where l.customer = :customer";
+        }
+        // no filter matches nothing, as in the blocking query
+        return " where 1 = 0";
+    }
+
+    private static Loan toLoan(Row row) {
+        Book book = Book.builder()
+                .id(row.get("book_id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .activeLoanId(row.get("active_loan_id", Long.class))
+                .build();
+        return Loan.builder()
+                .id(row.get("id", Long.class))
+                .customer(row.get("customer", String.class))
+                .customerEmail(row.get("customer_email", String.class))
+                .loanDate(row.get("loan_date", LocalDate.class))
+                .returned(row.get("returned", Boolean.class))
+                .book(book)
+                .build();
+    }
+}
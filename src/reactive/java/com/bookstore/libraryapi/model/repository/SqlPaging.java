@@ -0,0 +1,39 @@
+package com.bookstore.libraryapi.model.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Helpers shared by the reactive repositories for the SQL they build by hand.
+ */
+final class SqlPaging {
+
+    private SqlPaging() {
+    }
+
+    /**
+     * Translates the requested sort into an order by clause. Only properties listed in
+     * {@code columns} are accepted, and the id always comes last so pages are stable.
+     */
+    static String orderBy(Sort sort, Map<String, String> columns, String idColumn) {
+        StringJoiner order = new StringJoiner(", ", " order by ", "");
+        for (Sort.Order requested : sort) {
+            String column = columns.get(requested.getProperty());
+            if (column != null && !column.equals(idColumn)) {
+                order.add(requested.isAscending() ? column : column + " desc");
+            }
+        }
+        order.add(idColumn);
+        return order.toString();
+    }
+
+    static DatabaseClient.GenericExecuteSpec bindAll(DatabaseClient.GenericExecuteSpec spec, Map<String, Object> bindings) {
+        for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+            spec = spec.bind(binding.getKey(), binding.getValue());
+        }
+        return spec;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link BookService} used by the reactive stack.
+ */
+public interface ReactiveBookService {
+    Mono<Book> save(Book book);
+
+    Mono<Book> getById(Long id);
+
+    Mono<Book> getByIsbn(String isbn);
+
+    Mono<Void> delete(Book book);
+
+    Mono<Book> update(Book book);
+
+    Mono<Page<Book>> find(Book filter, Pageable pageRequest);
+
+    Mono<Slice<Book>> findAfter(Book filter, Long lastId, int size);
+
+    Flux<Book> stream(Book filter);
+}
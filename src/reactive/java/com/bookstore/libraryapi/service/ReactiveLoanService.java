@@ -0,0 +1,33 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
+import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link LoanService} used by the reactive stack.
+ */
+public interface ReactiveLoanService {
+    Mono<Loan> save(Loan loan);
+
+    Mono<Loan> getById(Long id);
+
+    Mono<Loan> update(Loan loan);
+
+    Mono<Page<Loan>> find(LoanFilterDTO filterDTO, Pageable page);
+
+    Mono<Slice<Loan>> findAfter(LoanFilterDTO filterDTO, Long lastId, int size);
+
+    Mono<Page<Loan>> getLoansByBook(Book book, Pageable pageable);
+
+    Flux<BatchItemResultDTO> updateReturned(List<LoanReturnDTO> returns);
+}
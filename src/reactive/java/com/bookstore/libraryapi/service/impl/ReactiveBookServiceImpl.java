@@ -0,0 +1,152 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.config.CacheConfig;
+import com.bookstore.libraryapi.exception.BusinessException;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.ReactiveBookRepository;
+import com.bookstore.libraryapi.service.BookSearchService;
+import com.bookstore.libraryapi.service.ReactiveBookService;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.bookstore.libraryapi.service.impl.BookServiceImpl.startingWith;
+
+/**
+ * Keeps the state the blocking services also rely on in step with its writes: the isbn filter
+ * learns every saved isbn, and updates and deletes evict the book caches the jobs and the import
+ * read through {@link BookServiceImpl}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private final ReactiveBookRepository repository;
+
+    private final BookSearchService searchService;
+
+    private final IsbnBloomFilter isbnFilter;
+
+    private final CacheManager cacheManager;
+
+    public ReactiveBookServiceImpl(ReactiveBookRepository repository, BookSearchService searchService,
+                                   IsbnBloomFilter isbnFilter, CacheManager cacheManager) {
+        this.repository = repository;
+        this.searchService = searchService;
+        this.isbnFilter = isbnFilter;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        return repository.insert(book)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BusinessException("isbn já cadastrado"))
+                .doOnNext(saved -> isbnFilter.put(saved.getIsbn()))
+                .flatMap(this::index);
+    }
+
+    @Override
+    public Mono<Book> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Mono<Book> getByIsbn(String isbn) {
+        return isbn == null ? Mono.empty() : repository.findByIsbn(isbn);
+    }
+
+    @Override
+    public Mono<Void> delete(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id can't be null"));
+        }
+        return repository.deleteById(book.getId())
+                .doOnSuccess(deleted -> evict(book))
+                .then(Mono.fromRunnable(() -> searchService.remove(book)).subscribeOn(Schedulers.boundedElastic()))
+                .then();
+    }
+
+    /**
+     * Expects the book with the version it was read with, and fails with an
+     * {@link OptimisticLockingFailureException} when another update committed since.
+     */
+    @Override
+    public Mono<Book> update(Book book) {
+        if (book == null || book.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Book id can't be null"));
+        }
+        return repository.update(book)
+                .flatMap(updated -> updated == 0
+                        ? Mono.<Book>error(new OptimisticLockingFailureException("Book " + book.getId() + " was modified"))
+                        : Mono.just(book.toBuilder().version(book.getVersion() + 1).build()))
+                .doOnNext(this::evict)
+                .flatMap(this::index);
+    }
+
+    @Override
+    public Mono<Page<Book>> find(Book filter, Pageable pageRequest) {
+        String title = startingWith(filter.getTitle());
+        String author = startingWith(filter.getAuthor());
+        String isbn = startingWith(filter.getIsbn());
+        return Mono.zip(repository.find(title, author, isbn, pageRequest).collectList(), repository.count(title, author, isbn))
+                .map(page -> new PageImpl<>(page.getT1(), pageRequest, page.getT2()));
+    }
+
+    @Override
+    public Mono<Slice<Book>> findAfter(Book filter, Long lastId, int size) {
+        return repository.findAfter(lastId, startingWith(filter.getTitle()), startingWith(filter.getAuthor()),
+                startingWith(filter.getIsbn()), size + 1)
+                .collectList()
+                .map(books -> toSlice(books, size));
+    }
+
+    /**
+     * Every matching book in id order, emitted as rows arrive and only as fast as the subscriber requests them.
+     */
+    @Override
+    public Flux<Book> stream(Book filter) {
+        return repository.findAfter(0L, startingWith(filter.getTitle()), startingWith(filter.getAuthor()),
+                startingWith(filter.getIsbn()), 0);
+    }
+
+    static <T> Slice<T> toSlice(List<T> rows, int size) {
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.of(0, size), hasNext);
+    }
+
+    private void evict(Book book) {
+        evict(CacheConfig.BOOKS, book.getId());
+        evict(CacheConfig.BOOKS_BY_ISBN, book.getIsbn());
+    }
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    /**
+     * The search index is written with blocking IO, so it is kept off the event loop.
+     */
+    private Mono<Book> index(Book book) {
+        return Mono.fromRunnable(() -> searchService.index(Collections.singletonList(book)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(book);
+    }
+}
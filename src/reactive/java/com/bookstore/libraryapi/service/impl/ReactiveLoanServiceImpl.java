@@ -0,0 +1,144 @@
+package com.bookstore.libraryapi.service.impl;
+
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
+import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
+import com.bookstore.libraryapi.exception.BusinessException;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.repository.ReactiveBookRepository;
+import com.bookstore.libraryapi.model.repository.ReactiveLoanRepository;
+import com.bookstore.libraryapi.service.LoanStatisticsService;
+import com.bookstore.libraryapi.service.ReactiveLoanService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Moves the same {@link LoanStatisticsService} counters as the blocking service, once the
+ * transaction of the change has committed.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveLoanServiceImpl implements ReactiveLoanService {
+
+    private final ReactiveLoanRepository repository;
+
+    private final ReactiveBookRepository bookRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final LoanStatisticsService statistics;
+
+    public ReactiveLoanServiceImpl(ReactiveLoanRepository repository, ReactiveBookRepository bookRepository,
+                                   TransactionalOperator transactionalOperator, LoanStatisticsService statistics) {
+        this.repository = repository;
+        this.bookRepository = bookRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Inserts the loan and flags its book with the same compare-and-set as the blocking service,
+     * rolling both back when another loan already holds the book.
+     */
+    @Override
+    public Mono<Loan> save(Loan loan) {
+        return repository.insert(loan)
+                .flatMap(saved -> acquire(saved).thenReturn(saved))
+                .as(transactionalOperator::transactional)
+                .doOnNext(statistics::loanCreated);
+    }
+
+    @Override
+    public Mono<Loan> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    /**
+     * As in the blocking service, the previous state is read from the book: a loan is active exactly
+     * while its book points back to it.
+     */
+    @Override
+    public Mono<Loan> update(Loan loan) {
+        boolean returned = Boolean.TRUE.equals(loan.getReturned());
+        Mono<Boolean> changed = returned
+                ? bookRepository.releaseActiveLoan(loan.getBook().getId(), loan.getId()).map(released -> released > 0)
+                : acquire(loan).thenReturn(!Objects.equals(loan.getId(), loan.getBook().getActiveLoanId()));
+        return changed.flatMap(moved -> repository.updateReturned(loan.getId(), returned).thenReturn(moved))
+                .as(transactionalOperator::transactional)
+                .map(moved -> {
+                    if (moved && returned) {
+                        statistics.loanReturned(loan);
+                    } else if (moved) {
+                        statistics.loanReopened(loan);
+                    }
+                    return loan;
+                });
+    }
+
+    /**
+     * Same filters as the blocking {@code find}, the page and its count are read concurrently.
+     */
+    @Override
+    public Mono<Page<Loan>> find(LoanFilterDTO filterDTO, Pageable page) {
+        return Mono.zip(repository.find(filterDTO.getIsbn(), filterDTO.getCustomer(), page).collectList(),
+                repository.count(filterDTO.getIsbn(), filterDTO.getCustomer()))
+                .map(result -> new PageImpl<>(result.getT1(), page, result.getT2()));
+    }
+
+    @Override
+    public Mono<Slice<Loan>> findAfter(LoanFilterDTO filterDTO, Long lastId, int size) {
+        return repository.findAfter(lastId, filterDTO.getIsbn(), filterDTO.getCustomer(), size + 1)
+                .collectList()
+                .map(loans -> ReactiveBookServiceImpl.toSlice(loans, size));
+    }
+
+    @Override
+    public Mono<Page<Loan>> getLoansByBook(Book book, Pageable pageable) {
+        return Mono.zip(repository.findByBook(book.getId(), pageable).collectList(), repository.countByBook(book.getId()))
+                .map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+    }
+
+    /**
+     * Applies each return in its own transaction, in order, reporting the outcome per item.
+     */
+    @Override
+    public Flux<BatchItemResultDTO> updateReturned(List<LoanReturnDTO> returns) {
+        return Flux.fromIterable(returns)
+                .index()
+                .concatMap(item -> {
+                    int index = item.getT1().intValue();
+                    LoanReturnDTO dto = item.getT2();
+                    Mono<Loan> loan = dto.getId() == null ? Mono.empty() : repository.findById(dto.getId());
+                    return loan
+                            .flatMap(found -> {
+                                found.setReturned(Boolean.TRUE.equals(dto.getReturned()));
+                                return update(found);
+                            })
+                            .map(updated -> BatchItemResultDTO.builder().index(index).id(updated.getId()).success(true).build())
+                            .onErrorResume(BusinessException.class, e -> Mono.just(BatchItemResultDTO.builder()
+                                    .index(index).id(dto.getId()).success(false).message(e.getMessage()).build()))
+                            .defaultIfEmpty(BatchItemResultDTO.builder().index(index).id(dto.getId()).success(false)
+                                    .message("Loan not found").build());
+                });
+    }
+
+    private Mono<Void> acquire(Loan loan) {
+        return bookRepository.acquireActiveLoan(loan.getBook().getId(), loan.getId())
+                .onErrorReturn(ConcurrencyFailureException.class, 0)
+                .flatMap(updated -> updated == 0
+                        ? Mono.<Void>error(new BusinessException("Book already in use"))
+                        : Mono.<Void>empty());
+    }
+}
@@ -0,0 +1,68 @@
+package com.bookstore.libraryapi.api.mapper;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DtoMapperTest {
+
+    DtoMapper generated = new GeneratedDtoMapper();
+
+    DtoMapper reflective = new ModelMapperDtoMapper(new ModelMapper());
+
+    private Book createValidBook() {
+        return Book.builder().id(1L).isbn("valid-isbn").author("valid-author").title("valid-title").build();
+    }
+
+    @Test
+    @DisplayName("should map books the same way with both engines")
+    public void mapBookTest() {
+        Book book = createValidBook();
+
+        BookDto dto = generated.toDto(book);
+
+        assertThat(dto).isEqualTo(reflective.toDto(book));
+        assertThat(dto).isEqualTo(BookDto.builder().id(1L).isbn("valid-isbn").author("valid-author").title("valid-title").build());
+        assertThat(generated.toEntity(dto)).isEqualTo(book);
+    }
+
+    @Test
+    @DisplayName("should map a partially filled book filter without failing on null values")
+    public void mapBookFilterTest() {
+        BookDto filter = new BookDto();
+        filter.setTitle("valid-title");
+
+        Book book = generated.toEntity(filter);
+
+        assertThat(book.getTitle()).isEqualTo("valid-title");
+        assertThat(book.getAuthor()).isNull();
+        assertThat(book.getIsbn()).isNull();
+    }
+
+    @Test
+    @DisplayName("should map loans with their book")
+    public void mapLoanTest() {
+        Loan loan = Loan.builder().id(1L).book(createValidBook()).customer("valid-customer")
+                .customerEmail("customer@email.com").loanDate(LocalDate.now()).build();
+
+        LoanDto dto = generated.toDto(loan);
+
+        assertThat(dto.getBook()).isEqualTo(reflective.toDto(loan).getBook());
+        assertThat(dto.getCustomer()).isEqualTo("valid-customer");
+        assertThat(dto.getIsbn()).isEqualTo("valid-isbn");
+        assertThat(dto.getEmail()).isEqualTo("customer@email.com");
+
+        Loan entity = generated.toEntity(dto);
+        assertThat(entity.getCustomer()).isEqualTo("valid-customer");
+        assertThat(entity.getCustomerEmail()).isEqualTo("customer@email.com");
+        assertThat(entity.getBook()).isNull();
+    }
+}
@@ -1,15 +1,23 @@
 package com.bookstore.libraryapi.api.resources;
 
 import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.BookImportResultDTO;
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
 import com.bookstore.libraryapi.api.resource.BookController;
 import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.service.BookImportService;
+import com.bookstore.libraryapi.service.BookSearchService;
 import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.ExportFormat;
+import com.bookstore.libraryapi.service.ExportService;
 import com.bookstore.libraryapi.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.modelmapper.ModelMapper;
@@ -21,20 +29,34 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.util.StreamUtils;
 
 import javax.swing.text.html.Option;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -55,6 +77,15 @@ public class BookControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    BookImportService bookImportService;
+
+    @MockBean
+    BookSearchService bookSearchService;
+
+    @MockBean
+    ExportService exportService;
+
     private BookDto createBookDto() {
         return BookDto.builder().author("valid-author").title("valid-title").isbn("valid-isbn").build();
     }
@@ -184,7 +215,7 @@ public class BookControllerTest {
         Book updatingBook = Book.builder().id(1l).title("another-valid-title").author("another-valid-author").isbn("valid-isbn").build();
         BDDMockito.given(bookService.getById(id)).willReturn(Optional.of(updatingBook));
         Book updatedBook = Book.builder().id(id).title("updated-valid-title").author("updated-valid-author").isbn("valid-isbn").build();
-        BDDMockito.given(bookService.update(updatingBook)).willReturn(updatedBook);
+        BDDMockito.given(bookService.update(Mockito.any(Book.class))).willReturn(updatedBook);
 
 //        execução
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat(("/" + id))).contentType(MediaType.APPLICATION_JSON)
@@ -198,6 +229,10 @@ public class BookControllerTest {
                 .andExpect(jsonPath("title").value(updatedBook.getTitle()))
                 .andExpect(jsonPath("author").value(updatedBook.getAuthor()))
                 .andExpect(jsonPath("isbn").value(updatedBook.getIsbn()));
+        ArgumentCaptor<Book> saved = ArgumentCaptor.forClass(Book.class);
+        Mockito.verify(bookService).update(saved.capture());
+        assertThat(saved.getValue()).isNotSameAs(updatingBook);
+        assertThat(updatingBook.getTitle()).isEqualTo("another-valid-title");
     }
 
     @Test
@@ -237,4 +272,201 @@ public class BookControllerTest {
                 .andExpect(jsonPath("pageable.pageSize").value((100)))
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
+
+    @Test
+    @DisplayName("should search books by text")
+    public void searchBooksTest() throws Exception {
+        BookSearchResultDTO hit = BookSearchResultDTO.builder().id(1l).title("Harry Potter").author("J. K. Rowling")
+                .isbn("123").score(2.5f).build();
+        BDDMockito.given(bookSearchService.search("harry pottr", 10)).willReturn(Arrays.asList(hit));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/search?q=harry pottr&size=10")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("[0].id").value(1))
+                .andExpect(jsonPath("[0].title").value("Harry Potter"));
+    }
+
+    @Test
+    @DisplayName("should walk books with a continuation cursor")
+    public void findBookWithCursorTest() throws Exception {
+        Book book = Book.builder().id(7l).title(createBookDto().getTitle()).author(createBookDto().getAuthor())
+                .isbn(createBookDto().getIsbn()).build();
+        BDDMockito.given(bookService.findAfter(Mockito.any(Book.class), Mockito.anyLong(), Mockito.anyInt()))
+                .willReturn(new SliceImpl<Book>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        String nextCursor = JsonPath.read(mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?cursor=&size=1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("hasNext").value(true))
+                .andExpect(jsonPath("totalElements").doesNotExist())
+                .andReturn().getResponse().getContentAsString(), "nextCursor");
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?size=1&cursor=" + nextCursor)).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        Mockito.verify(bookService).findAfter(Mockito.any(Book.class), Mockito.eq(0L), Mockito.eq(1));
+        Mockito.verify(bookService).findAfter(Mockito.any(Book.class), Mockito.eq(7L), Mockito.eq(1));
+        Mockito.verify(bookService, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("should return bad request for an invalid cursor")
+    public void findBookWithInvalidCursorTest() throws Exception {
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?cursor=not-a-cursor")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("should tag a book with its version and answer not modified while it is unchanged")
+    public void getBookNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1l).title("valid-title").author("valid-author").isbn("valid-isbn").version(3l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header("If-None-Match", "W/\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(content().string(""));
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header("If-None-Match", "\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("title").value("valid-title"));
+    }
+
+    @Test
+    @DisplayName("should answer not modified for an unchanged page of books")
+    public void findBookNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1l).title("valid-title").author("valid-author").isbn("valid-isbn").version(0l).build();
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 10), 1));
+
+        String etag = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=valid")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=valid")).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        book.setVersion(1l);
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=valid")).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @DisplayName("should update a book only while If-Match holds its current version")
+    public void updateBookIfMatchTest() throws Exception {
+        Book book = Book.builder().id(1l).title("valid-title").author("valid-author").isbn("valid-isbn").version(2l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+        BDDMockito.given(bookService.update(Mockito.any(Book.class)))
+                .willReturn(Book.builder().id(1l).title("new-title").author("new-author").isbn("valid-isbn").version(3l).build());
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1?title=new-title&author=new-author")).header("If-Match", "\"1-1\""))
+                .andExpect(status().isPreconditionFailed());
+        Mockito.verify(bookService, Mockito.never()).update(Mockito.any(Book.class));
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1?title=new-title&author=new-author")).header("If-Match", "\"1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-3\""))
+                .andExpect(jsonPath("title").value("new-title"));
+        assertThat(book.getTitle()).isEqualTo("valid-title");
+    }
+
+    @Test
+    @DisplayName("should fail the precondition when another update commits first")
+    public void updateBookConcurrentlyModifiedTest() throws Exception {
+        Book book = Book.builder().id(1l).title("valid-title").author("valid-author").isbn("valid-isbn").version(2l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+        BDDMockito.given(bookService.update(Mockito.any(Book.class))).willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1l));
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1?title=new-title&author=new-author")).header("If-Match", "\"1-2\""))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1?title=new-title&author=new-author")))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @DisplayName("should stream the catalogue export gzipped when the client accepts it")
+    public void exportBooksGzipTest() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("id,isbn,title,author\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportBooks(Mockito.eq(ExportFormat.CSV), Mockito.any(OutputStream.class));
+
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=CSV"))
+                .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"books.csv\""))
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(StreamUtils.copyToString(in, StandardCharsets.UTF_8)).isEqualTo("id,isbn,title,author\r\n");
+        }
+    }
+
+    @Test
+    @DisplayName("should stream a json array of books to the importer")
+    public void importBooksFromJsonArrayTest() throws Exception {
+        List<BookDto> received = mockImport();
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(createBookDto(), createBookDto()));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/bulk"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(2))
+                .andExpect(jsonPath("imported").value(2));
+        assertThat(received).extracting(BookDto::getIsbn).containsExactly("valid-isbn", "valid-isbn");
+    }
+
+    @Test
+    @DisplayName("should stream newline delimited books to the importer")
+    public void importBooksFromNdjsonTest() throws Exception {
+        List<BookDto> received = mockImport();
+        ObjectMapper mapper = new ObjectMapper();
+        String ndjson = mapper.writeValueAsString(createBookDto()) + "\n" + mapper.writeValueAsString(createBookDto()) + "\n";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/bulk"))
+                .contentType("application/x-ndjson")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(ndjson);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("received").value(2));
+        assertThat(received).hasSize(2);
+    }
+
+    private List<BookDto> mockImport() {
+        List<BookDto> received = new ArrayList<>();
+        BDDMockito.given(bookImportService.importBooks(Mockito.any())).willAnswer(invocation -> {
+            Iterator<BookDto> books = invocation.getArgument(0);
+            books.forEachRemaining(received::add);
+            return BookImportResultDTO.builder().received(received.size()).imported(received.size())
+                    .errors(new ArrayList<>()).build();
+        });
+        return received;
+    }
 }
@@ -1,13 +1,17 @@
 package com.bookstore.libraryapi.api.resources;
 
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
 import com.bookstore.libraryapi.api.dto.LoanDto;
 import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
 import com.bookstore.libraryapi.api.dto.ReturnedLoanDTO;
 import com.bookstore.libraryapi.api.resource.LoanController;
 import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
 import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.ExportFormat;
+import com.bookstore.libraryapi.service.ExportService;
 import com.bookstore.libraryapi.service.LoanService;
 import com.bookstore.libraryapi.service.LoanServiceTest;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -27,19 +31,26 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 
 import static com.bookstore.libraryapi.api.resources.BookControllerTest.BOOK_API;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -60,6 +71,9 @@ public class LoanControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    ExportService exportService;
+
     private LoanDto createValidLoanDto() {
         return new LoanDto().builder().email("mail@email.com").isbn("valid-isbn").customer("valid-customer").build();
     }
@@ -182,5 +196,88 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("should filter loans with a continuation cursor")
+    public void findLoansWithCursorTest() throws Exception {
+        Loan loan = LoanServiceTest.createValidLoan();
+        loan.setId(1L);
+        BDDMockito.given(loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.anyLong(), Mockito.anyInt()))
+                .willReturn(new SliceImpl<Loan>(Arrays.asList(loan), PageRequest.of(0, 10), false));
 
+        mvc
+                .perform(MockMvcRequestBuilders.get(LOAN_API.concat("?cursor=&size=10&customer=" + loan.getCustomer()))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)))
+                .andExpect(jsonPath("content[0].book.isbn").value(loan.getBook().getIsbn()))
+                .andExpect(jsonPath("hasNext").value(false))
+                .andExpect(jsonPath("nextCursor").doesNotExist());
+
+        Mockito.verify(loanService).findAfter(Mockito.any(LoanFilterDTO.class), Mockito.eq(0L), Mockito.eq(10));
+    }
+
+    @Test
+    @DisplayName("should create loans in batch reporting each item")
+    public void createLoanBatchTest() throws Exception {
+        LoanDto valid = createValidLoanDto();
+        LoanDto unknownBook = createValidLoanDto();
+        unknownBook.setIsbn("unknown-isbn");
+        Book book = Book.builder().id(1l).isbn("valid-isbn").build();
+        BDDMockito.given(bookService.getByIsbns(Mockito.anyCollection())).willReturn(Collections.singletonList(book));
+        BDDMockito.given(loanService.saveAll(Mockito.anyList())).willReturn(Collections.singletonList(
+                BatchItemResultDTO.builder().index(0).id(10l).isbn("valid-isbn").success(true).build()));
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList(unknownBook, valid));
+
+        mvc
+                .perform(MockMvcRequestBuilders.post(LOAN_API.concat("/batch"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("[0].success").value(false))
+                .andExpect(jsonPath("[0].message").value("Book not found for passed isbn"))
+                .andExpect(jsonPath("[1].index").value(1))
+                .andExpect(jsonPath("[1].id").value(10))
+                .andExpect(jsonPath("[1].success").value(true));
+
+        Mockito.verify(bookService, Mockito.times(1)).getByIsbns(Mockito.anyCollection());
+    }
+
+    @Test
+    @DisplayName("should return books in batch")
+    public void returnBookBatchTest() throws Exception {
+        List<LoanReturnDTO> returns = Arrays.asList(LoanReturnDTO.builder().id(1l).returned(true).build());
+        BDDMockito.given(loanService.updateReturned(returns)).willReturn(Collections.singletonList(
+                BatchItemResultDTO.builder().index(0).id(1l).success(true).build()));
+
+        mvc
+                .perform(patch(LOAN_API.concat("/batch"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(returns)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("[0].success").value(true));
+    }
+
+    @Test
+    @DisplayName("should stream the loan history as ndjson and reject unknown formats")
+    public void exportLoansTest() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportLoans(Mockito.eq(ExportFormat.NDJSON), Mockito.any(OutputStream.class));
+
+        MvcResult started = mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=ndjson")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                .andExpect(content().string("{\"id\":1}\n"));
+
+        mvc.perform(MockMvcRequestBuilders.get(LOAN_API.concat("/export?format=xml")))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,74 @@
+package com.bookstore.libraryapi.api.resources;
+
+import com.bookstore.libraryapi.api.dto.LoanStatsDTO;
+import com.bookstore.libraryapi.api.dto.RankingEntryDTO;
+import com.bookstore.libraryapi.api.resource.StatsController;
+import com.bookstore.libraryapi.service.LoanStatisticsService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@WebMvcTest(controllers = StatsController.class)
+public class StatsControllerTest {
+
+    static final String STATS_API = "/api/stats";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    LoanStatisticsService statisticsService;
+
+    private LoanStatsDTO createStats() {
+        return LoanStatsDTO.builder().totalLoans(10).activeLoans(4).overdueLoans(1)
+                .topBooks(Collections.singletonList(new RankingEntryDTO("valid-isbn", 3)))
+                .topCustomers(Collections.singletonList(new RankingEntryDTO("valid-customer", 2)))
+                .generatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    @DisplayName("should return the last statistics snapshot")
+    public void getStatisticsTest() throws Exception {
+        BDDMockito.given(statisticsService.getStatistics()).willReturn(createStats());
+
+        mvc.perform(MockMvcRequestBuilders.get(STATS_API).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("activeLoans").value(4))
+                .andExpect(jsonPath("overdueLoans").value(1))
+                .andExpect(jsonPath("topBooks[0].key").value("valid-isbn"))
+                .andExpect(jsonPath("topCustomers[0].loans").value(2));
+    }
+
+    @Test
+    @DisplayName("should rebuild the statistics from the loan history")
+    public void rebuildTest() throws Exception {
+        BDDMockito.given(statisticsService.rebuild()).willReturn(createStats());
+
+        mvc.perform(MockMvcRequestBuilders.post(STATS_API.concat("/rebuild")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalLoans").value(10));
+
+        Mockito.verify(statisticsService).rebuild();
+    }
+}
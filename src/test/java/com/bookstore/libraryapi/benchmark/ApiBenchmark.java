@@ -0,0 +1,71 @@
+package com.bookstore.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end requests through the full MVC stack (MockMvc, no network) against a seeded H2 database.
+ * Change the dataset with {@code -Djmh.args="-p datasetSize=100000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiBenchmark {
+
+    @Param({"1000"})
+    int datasetSize;
+
+    ConfigurableApplicationContext context;
+
+    MockMvc mvc;
+
+    int next;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(datasetSize);
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getBook() throws Exception {
+        next = next % datasetSize + 1;
+        return perform("/api/books/" + next);
+    }
+
+    @Benchmark
+    public String findBooks() throws Exception {
+        return perform("/api/books?author=author-1&page=0&size=20");
+    }
+
+    @Benchmark
+    public String findBooksWithCursor() throws Exception {
+        return perform("/api/books?author=author-1&cursor=&size=20");
+    }
+
+    @Benchmark
+    public String findLoans() throws Exception {
+        next = (next + 1) % BenchmarkApplication.CUSTOMERS;
+        return perform("/api/loans?customer=" + BenchmarkApplication.customer(next) + "&page=0&size=20");
+    }
+
+    private String perform(String uri) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.LibraryApiApplication;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.LoanService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the application on a private H2 database, in memory unless told otherwise, seeded with {@code books} books,
+ * every other one lent to one of {@value #CUSTOMERS} customers, with the given profiles active.
+ * Shared by the JMH suites and the load tests.
+ */
+final class BenchmarkApplication {
+
+    static final int CUSTOMERS = 100;
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(int books, String... profiles) {
+        String database = "benchmark-" + UUID.randomUUID();
+        return start(books, new String[]{
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"}, profiles);
+    }
+
+    /**
+     * Same as {@link #start(int, String...)} on the database set by {@code databaseArgs}, command line
+     * arguments such as {@code --spring.datasource.url=...}.
+     */
+    static ConfigurableApplicationContext start(int books, String[] databaseArgs, String... profiles) {
+        // given as arguments, so they win over the urls of the profile files
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=warn",
+                        // the slow request and statement warnings would flood the output under load
+                        "logging.level.com.bookstore.libraryapi.config=error",
+                        // the context sets the level for the whole JVM, the load tests report through it
+                        "logging.level.com.bookstore.libraryapi.benchmark=info",
+                        "logging.file=")
+                // also an argument: application.properties sets a directory, which would be shared by every run
+                .run(concat(databaseArgs, "--application.search.index-dir="));
+        seed(context, books);
+        return context;
+    }
+
+    static String isbn(long index) {
+        return "isbn-" + index;
+    }
+
+    static String customer(long index) {
+        return "customer-" + index % CUSTOMERS;
+    }
+
+    private static void seed(ConfigurableApplicationContext context, int books) {
+        BookService bookService = context.getBean(BookService.class);
+        LoanService loanService = context.getBean(LoanService.class);
+        for (int start = 0; start < books; start += SEED_CHUNK_SIZE) {
+            List<Book> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+            for (int i = start; i < Math.min(start + SEED_CHUNK_SIZE, books); i++) {
+                chunk.add(Book.builder().isbn(isbn(i)).author("author-" + i % 500).title("title-" + i).build());
+            }
+            List<Loan> loans = new ArrayList<>(chunk.size() / 2);
+            for (Book book : bookService.saveAll(chunk)) {
+                long index = Long.parseLong(book.getIsbn().substring("isbn-".length()));
+                if (index % 2 == 0) {
+                    loans.add(Loan.builder().book(book).customer(customer(index))
+                            .customerEmail(customer(index) + "@email.com").loanDate(LocalDate.now()).build());
+                }
+            }
+            loanService.saveAll(loans);
+        }
+    }
+
+    private static String[] concat(String[] args, String arg) {
+        String[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = arg;
+        return all;
+    }
+}
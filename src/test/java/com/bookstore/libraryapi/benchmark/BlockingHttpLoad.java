@@ -0,0 +1,188 @@
+package com.bookstore.libraryapi.benchmark;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-loop HTTP client for the load tests: {@code threads} threads each send a request, wait for the
+ * response and send the next one over the same kept-alive connection of the JDK client, so there are
+ * as many connections open as threads.
+ */
+final class BlockingHttpLoad implements AutoCloseable {
+
+    private final String baseUrl;
+
+    private final int threads;
+
+    private final ExecutorService executor;
+
+    BlockingHttpLoad(ConfigurableApplicationContext context, int threads) {
+        // read once by the JDK client, otherwise it keeps only 5 connections alive per server
+        System.setProperty("http.maxConnections", String.valueOf(threads));
+        this.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Sends {@code requests} requests built by {@code request} from the request index; anything but
+     * {@code expectedStatus} counts as an error.
+     */
+    Result fire(int requests, int expectedStatus, IntFunction<Request> request) {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(executor.submit(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    long sent = System.nanoTime();
+                    try {
+                        if (send(request.apply(i)) != expectedStatus) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the load", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("load worker failed", e.getCause());
+            }
+        }
+        return new Result(latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    private int send(Request request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+        connection.setRequestMethod(request.method);
+        if (request.json != null) {
+            byte[] body = request.json.getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            // streamed, otherwise the client buffers the whole body and sends it at once
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                if (request.pause.isZero()) {
+                    out.write(body);
+                } else {
+                    out.write(body, 0, body.length / 2);
+                    out.flush();
+                    pause(request.pause);
+                    out.write(body, body.length / 2, body.length - body.length / 2);
+                }
+            }
+        }
+        int status = connection.getResponseCode();
+        // read to the end, so the connection goes back to the keep-alive cache instead of being closed
+        try (InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (in != null) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) >= 0) {
+                    // discard
+                }
+            }
+        }
+        return status;
+    }
+
+    private static void pause(Duration pause) throws IOException {
+        try {
+            Thread.sleep(pause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted in the middle of the body", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    static final class Request {
+
+        private final String method;
+
+        private final String path;
+
+        private final String json;
+
+        private final Duration pause;
+
+        private Request(String method, String path, String json, Duration pause) {
+            this.method = method;
+            this.path = path;
+            this.json = json;
+            this.pause = pause;
+        }
+
+        static Request get(String path) {
+            return new Request("GET", path, null, Duration.ZERO);
+        }
+
+        static Request post(String path, String json) {
+            return new Request("POST", path, json, Duration.ZERO);
+        }
+
+        /**
+         * The same request from a slow client, sending half of the body, waiting {@code pause} and then
+         * sending the rest.
+         */
+        Request pausedMidBody(Duration pause) {
+            return new Request(method, path, json, pause);
+        }
+    }
+
+    static final class Result {
+
+        private final long[] latencies;
+
+        final int errors;
+
+        private final long elapsed;
+
+        Result(long[] latencies, int errors, long elapsed) {
+            this.latencies = latencies.clone();
+            this.errors = errors;
+            this.elapsed = elapsed;
+            Arrays.sort(this.latencies);
+        }
+
+        double throughput() {
+            return latencies.length / (elapsed / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50 %.1f ms, p99 %.1f ms, %.0f req/s, %d errors",
+                    latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                    throughput(), errors);
+        }
+    }
+}
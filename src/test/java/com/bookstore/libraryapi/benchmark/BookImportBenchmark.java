@@ -0,0 +1,66 @@
+package com.bookstore.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One bulk import of {@code rows} new books through the full MVC stack per invocation, each with isbns
+ * of its own, so the catalog grows by that many books every time. Change the size with
+ * {@code -Djmh.args="-p rows=200000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BookImportBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+
+    MockMvc mvc;
+
+    int run;
+
+    String ndjson;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(0);
+        mvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @Setup(Level.Invocation)
+    public void nextImport() {
+        StringBuilder body = new StringBuilder(rows * 80);
+        for (int i = 0; i < rows; i++) {
+            body.append("{\"title\":\"title-").append(i)
+                    .append("\",\"author\":\"author-").append(i % 1000)
+                    .append("\",\"isbn\":\"import-").append(run).append('-').append(i).append("\"}\n");
+        }
+        ndjson = body.toString();
+        run++;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String importBooks() throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.post("/api/books/bulk")
+                .contentType("application/x-ndjson")
+                .content(ndjson))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
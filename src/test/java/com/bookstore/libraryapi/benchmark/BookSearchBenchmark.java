@@ -0,0 +1,45 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
+import com.bookstore.libraryapi.service.impl.BookSearchServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency distribution (p50 .. p99.99 in the JSON result) over a synthetic catalogue.
+ * The target catalogue is 5M titles: {@code -Djmh.include=BookSearchBenchmark -Djmh.args="-p catalogSize=5000000"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BookSearchBenchmark {
+
+    @Param({"100000"})
+    int catalogSize;
+
+    BookSearchServiceImpl service;
+
+    Random random = new Random();
+
+    @Setup
+    public void setUp() throws IOException {
+        service = SearchCatalog.build(catalogSize);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.close();
+    }
+
+    @Benchmark
+    public List<BookSearchResultDTO> search() {
+        return service.search(SearchCatalog.query(random), 20);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.service.impl.BookSearchServiceImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the search p99 latency target. Run with
+ * {@code mvn test -Dtest=BookSearchLatencyTest -Dbenchmark=true -Dbenchmark.catalog=5000000 -DargLine=-Xmx2g}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class BookSearchLatencyTest {
+
+    private static final int WARMUP_QUERIES = 2_000;
+
+    private static final int MEASURED_QUERIES = 10_000;
+
+    @Test
+    @DisplayName("should answer 99% of searches within the latency target")
+    public void searchLatencyTest() throws Exception {
+        int catalog = Integer.getInteger("benchmark.catalog", 500_000);
+        long targetMillis = Long.getLong("benchmark.search.p99-ms", 50);
+        Random random = new Random(7);
+
+        BookSearchServiceImpl service = SearchCatalog.build(catalog);
+        try {
+            for (int i = 0; i < WARMUP_QUERIES; i++) {
+                service.search(SearchCatalog.query(random), 20);
+            }
+            long[] latencies = new long[MEASURED_QUERIES];
+            for (int i = 0; i < MEASURED_QUERIES; i++) {
+                String query = SearchCatalog.query(random);
+                long start = System.nanoTime();
+                service.search(query, 20);
+                latencies[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(latencies);
+            double p50 = latencies[MEASURED_QUERIES / 2] / 1e6;
+            double p99 = latencies[MEASURED_QUERIES * 99 / 100] / 1e6;
+
+            log.info("search over {} books: p50 {} ms, p99 {} ms", catalog, String.format("%.2f", p50), String.format("%.2f", p99));
+            assertThat(p99).isLessThan(targetMillis);
+        } finally {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service level latency against a seeded H2 database: the Example based book search and
+ * lending a free book (availability check and insert), returned right after so the next
+ * invocation finds it free again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    @Param({"1000"})
+    int datasetSize;
+
+    ConfigurableApplicationContext context;
+
+    BookService bookService;
+
+    LoanService loanService;
+
+    Book freeBook;
+
+    int next;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(datasetSize);
+        bookService = context.getBean(BookService.class);
+        loanService = context.getBean(LoanService.class);
+        freeBook = bookService.getByIsbn(BenchmarkApplication.isbn(1)).get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> findByTitle() {
+        next = (next + 1) % datasetSize;
+        Book filter = Book.builder().title("title-" + next).build();
+        return bookService.find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Loan lendAndReturn() {
+        Loan loan = loanService.save(Loan.builder().book(freeBook).customer("benchmark")
+                .customerEmail("benchmark@email.com").loanDate(LocalDate.now()).build());
+        loan.setReturned(true);
+        return loanService.update(loan);
+    }
+}
@@ -0,0 +1,64 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.LoanDto;
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
+import com.bookstore.libraryapi.api.mapper.GeneratedDtoMapper;
+import com.bookstore.libraryapi.api.mapper.ModelMapperDtoMapper;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Maps a page of 100 books and loans with each engine. Run with {@code mvn -Pbenchmark -DskipTests verify},
+ * or {@code -Djmh.include=MappingBenchmark} to run only this suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"generated", "modelmapper"})
+    String engine;
+
+    DtoMapper mapper;
+
+    List<Book> books;
+
+    List<Loan> loans;
+
+    @Setup
+    public void setUp() {
+        mapper = "modelmapper".equals(engine) ? new ModelMapperDtoMapper(new ModelMapper()) : new GeneratedDtoMapper();
+        books = new ArrayList<>(PAGE_SIZE);
+        loans = new ArrayList<>(PAGE_SIZE);
+        for (long i = 0; i < PAGE_SIZE; i++) {
+            Book book = Book.builder().id(i).isbn("isbn-" + i).author("author-" + i).title("title-" + i).build();
+            books.add(book);
+            loans.add(Loan.builder().id(i).book(book).customer("customer-" + i)
+                    .customerEmail("customer-" + i + "@email.com").loanDate(LocalDate.now()).build());
+        }
+    }
+
+    @Benchmark
+    public List<BookDto> bookPage() {
+        return books.stream().map(mapper::toDto).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<LoanDto> loanPage() {
+        return loans.stream().map(mapper::toDto).collect(Collectors.toList());
+    }
+}
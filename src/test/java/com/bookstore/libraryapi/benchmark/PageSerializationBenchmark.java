@@ -0,0 +1,49 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the Page&lt;BookDto&gt; returned by GET /api/books, with the
+ * ObjectMapper configuration Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    @Param({"20", "100"})
+    int pageSize;
+
+    ObjectMapper objectMapper;
+
+    Page<BookDto> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<BookDto> books = new ArrayList<>(pageSize);
+        for (long i = 0; i < pageSize; i++) {
+            books.add(BookDto.builder().id(i).isbn("isbn-" + i).author("author-" + i).title("title-" + i).build());
+        }
+        page = new PageImpl<>(books, PageRequest.of(0, pageSize), 10_000);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
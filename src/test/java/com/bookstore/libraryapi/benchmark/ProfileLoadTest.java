@@ -0,0 +1,102 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.benchmark.BlockingHttpLoad.Request;
+import com.bookstore.libraryapi.benchmark.BlockingHttpLoad.Result;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the book and loan endpoints against a file based H2 once per profile set and logs the p99 and
+ * throughput of each endpoint, to check the JDBC tuning of the {@code perf} profile against the defaults.
+ * Profile sets are separated by {@code ;}, {@code default} standing for none. Run with
+ * {@code mvn test -Dtest=ProfileLoadTest -Dbenchmark=true -Dbenchmark.profiles="default;perf" -Dbenchmark.threads=64};
+ * the databases are left in {@code target/perf-h2}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ProfileLoadTest {
+
+    private static final int BOOKS = 20_000;
+
+    @Test
+    @DisplayName("should serve the book and loan endpoints with each profile on a file database")
+    public void profileLoadTest() {
+        int threads = Integer.getInteger("benchmark.threads", 64);
+        int requests = Integer.getInteger("benchmark.requests", 5_000);
+        List<String> profileSets = Arrays.asList(System.getProperty("benchmark.profiles", "default;perf").split(";"));
+
+        Map<String, Map<String, Result>> results = new LinkedHashMap<>();
+        for (String profileSet : profileSets) {
+            results.put(profileSet, load(threads, requests, profileSet));
+        }
+
+        log.info("{} requests per endpoint from {} threads, {} books", requests, threads, BOOKS);
+        results.forEach((profileSet, byEndpoint) -> {
+            log.info("{}:", profileSet);
+            byEndpoint.forEach((endpoint, result) -> log.info("  {} {}", String.format("%-22s", endpoint), result));
+        });
+        results.values().forEach(byEndpoint -> byEndpoint.values()
+                .forEach(result -> assertThat(result.errors).isZero()));
+    }
+
+    private static Map<String, Result> load(int threads, int requests, String profileSet) {
+        String[] profiles = "default".equals(profileSet) ? new String[0] : profileSet.split(",");
+        Path database = Paths.get("target", "perf-h2", profileSet.replace(',', '-') + "-" + UUID.randomUUID(), "library")
+                .toAbsolutePath();
+        // the perf profile brings its own url options, the others get the same file database without them
+        String databaseArg = Arrays.asList(profiles).contains("perf")
+                ? "--application.perf.database=" + database
+                : "--spring.datasource.url=jdbc:h2:file:" + database + ";DB_CLOSE_ON_EXIT=FALSE";
+        ConfigurableApplicationContext context = BenchmarkApplication.start(BOOKS, new String[]{databaseArg}, profiles);
+        List<Long> bookIds = context.getBean(BookRepository.class).findAll().stream()
+                .map(Book::getId)
+                .collect(Collectors.toList());
+        // only the books seeded with an odd index are free to lend, each of them once
+        int loans = Math.min(requests, BOOKS / 2);
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (BlockingHttpLoad load = new BlockingHttpLoad(context, threads)) {
+            results.put("GET /api/books/{id}", run(load, requests, 200, i ->
+                    Request.get("/api/books/" + bookIds.get(i % bookIds.size()))));
+            results.put("GET /api/books", run(load, requests, 200, i ->
+                    Request.get("/api/books?author=author-" + i % 500 + "&size=10")));
+            results.put("GET /api/loans", run(load, requests, 200, i ->
+                    Request.get("/api/loans?customer=" + BenchmarkApplication.customer(i) + "&size=10")));
+            results.put("POST /api/books", run(load, requests, 201, i ->
+                    Request.post("/api/books", "{\"isbn\": \"load-" + i + "\", \"author\": \"author-" + i % 500
+                            + "\", \"title\": \"title-" + i + "\"}")));
+            results.put("POST /api/loans", run(load, loans, 201, i ->
+                    Request.post("/api/loans", "{\"isbn\": \"" + BenchmarkApplication.isbn(2L * i + 1) + "\", \"customer\": \""
+                            + BenchmarkApplication.customer(i) + "\", \"email\": \"customer@email.com\"}")));
+        } finally {
+            context.close();
+        }
+        return results;
+    }
+
+    /**
+     * Warms the endpoint up with the first requests, which are not measured; the measured ones keep
+     * counting from there so writes never reuse an isbn.
+     */
+    private static Result run(BlockingHttpLoad load, int requests, int expectedStatus, IntFunction<Request> request) {
+        int warmup = Math.max(1, requests / 10);
+        load.fire(warmup, expectedStatus, request);
+        return load.fire(requests - warmup, expectedStatus, i -> request.apply(warmup + i));
+    }
+}
@@ -0,0 +1,107 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.impl.BookSearchServiceImpl;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic catalogue for the search benchmarks: titles of three to six words drawn with a skewed
+ * (Zipf like) frequency from a generated vocabulary, so a few words are very common and most are
+ * rare as in a real catalogue. Indexed straight into a temporary index without a database.
+ */
+final class SearchCatalog {
+
+    private static final String[] SYLLABLES = {
+            "ka", "ri", "mo", "sen", "ta", "lor", "vi", "dan", "el", "por", "an", "quis", "tre", "mu", "ga",
+            "ne", "shi", "ba", "col", "ur", "fe", "lin", "do", "xa", "ber", "ti", "ros", "um", "ze", "hal"};
+
+    private static final int VOCABULARY_SIZE = 20_000;
+
+    private static final int NAME_COUNT = 2_000;
+
+    private static final String[] WORDS = vocabulary(VOCABULARY_SIZE, 2, 1);
+
+    private static final String[] NAMES = vocabulary(NAME_COUNT, 2, 2);
+
+    private static final int INDEX_CHUNK_SIZE = 10_000;
+
+    private SearchCatalog() {
+    }
+
+    static BookSearchServiceImpl build(int size) throws IOException {
+        BookSearchServiceImpl service = new BookSearchServiceImpl(Mockito.mock(BookRepository.class), "", false);
+        Random random = new Random(42);
+        List<Book> chunk = new ArrayList<>(INDEX_CHUNK_SIZE);
+        for (long id = 1; id <= size; id++) {
+            chunk.add(Book.builder().id(id).title(title(random)).author(author(random)).isbn("isbn-" + id).build());
+            if (chunk.size() == INDEX_CHUNK_SIZE) {
+                service.index(chunk);
+                chunk.clear();
+            }
+        }
+        service.index(chunk);
+        service.commit();
+        return service;
+    }
+
+    /**
+     * Mix of the queries users type: a full word, a prefix being typed, a word with a typo
+     * and two words combined.
+     */
+    static String query(Random random) {
+        String word = pick(WORDS, random);
+        switch (random.nextInt(4)) {
+            case 0:
+                return word;
+            case 1:
+                return word.substring(0, 3);
+            case 2:
+                return word.substring(0, word.length() - 2) + word.charAt(word.length() - 1);
+            default:
+                return word + " " + pick(NAMES, random);
+        }
+    }
+
+    private static String title(Random random) {
+        int words = 3 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(pick(WORDS, random));
+        }
+        return title.toString();
+    }
+
+    private static String author(Random random) {
+        return pick(NAMES, random) + " " + pick(NAMES, random);
+    }
+
+    private static String pick(String[] words, Random random) {
+        double skewed = Math.pow(random.nextDouble(), 3);
+        return words[(int) (skewed * words.length)];
+    }
+
+    private static String[] vocabulary(int size, int minSyllables, int seed) {
+        Random random = new Random(seed);
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            int syllables = minSyllables + random.nextInt(3);
+            StringBuilder word = new StringBuilder();
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,63 @@
+package com.bookstore.libraryapi.benchmark;
+
+import com.bookstore.libraryapi.benchmark.BlockingHttpLoad.Request;
+import com.bookstore.libraryapi.benchmark.BlockingHttpLoad.Result;
+import com.bookstore.libraryapi.config.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Compares the default Tomcat workers with the {@code virtual-threads} profile under many slow clients:
+ * each one adds a book sending half of the body, waits {@code benchmark.client-delay-ms} and sends the
+ * rest, holding the thread that reads the body meanwhile. Needs JDK 21 for the forked test JVM, run with
+ * {@code mvn test -Pvirtual-threads -Dtest=VirtualThreadLoadTest -Dbenchmark=true -Djvm=<jdk 21>/bin/java -Dbenchmark.connections=2000}.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class VirtualThreadLoadTest {
+
+    private static final int BOOKS = 1_000;
+
+    @Test
+    @DisplayName("should serve the same slow clients on virtual threads")
+    public void slowClientsLoadTest() {
+        assumeTrue(VirtualThreads.isSupported(), "virtual threads need JDK 21 or newer");
+        int connections = Integer.getInteger("benchmark.connections", 2_000);
+        int requests = Integer.getInteger("benchmark.requests", connections * 3);
+        Duration delay = Duration.ofMillis(Long.getLong("benchmark.client-delay-ms", 500));
+
+        Result platform = load(connections, requests, delay);
+        Result virtual = load(connections, requests, delay, "virtual-threads");
+
+        log.info("{} slow clients, {} at once, {} ms between body parts", requests, connections, delay.toMillis());
+        log.info("platform threads: {}", platform);
+        log.info("virtual threads:  {}", virtual);
+        assertThat(virtual.errors).isZero();
+    }
+
+    private static Result load(int connections, int requests, Duration delay, String... profiles) {
+        ConfigurableApplicationContext context = BenchmarkApplication.start(BOOKS, profiles);
+        int warmup = Math.min(requests, connections);
+        try (BlockingHttpLoad load = new BlockingHttpLoad(context, connections)) {
+            load.fire(warmup, 201, addBook(delay, 0));
+            // the measured requests keep counting from the warmup, so no isbn is sent twice
+            return load.fire(requests, 201, addBook(delay, warmup));
+        } finally {
+            context.close();
+        }
+    }
+
+    private static IntFunction<Request> addBook(Duration delay, int first) {
+        return i -> Request.post("/api/books", "{\"isbn\": \"slow-" + (first + i) + "\", \"author\": \"author-" + i % 500
+                + "\", \"title\": \"title-" + i + "\"}").pausedMidBody(delay);
+    }
+}
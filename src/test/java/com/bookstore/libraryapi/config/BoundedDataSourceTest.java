@@ -0,0 +1,97 @@
+package com.bookstore.libraryapi.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BoundedDataSourceTest {
+
+    BoundedDataSource dataSource;
+
+    @Mock
+    DataSource target;
+
+    @Mock
+    Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+        dataSource = new BoundedDataSource(target, 1, 10);
+    }
+
+    @Test
+    @DisplayName("should give the permit back when the connection is closed")
+    public void releaseOnCloseTest() throws SQLException {
+        Connection first = dataSource.getConnection();
+        first.close();
+        first.close();
+
+        Connection second = dataSource.getConnection();
+
+        assertThat(second).isNotNull();
+        verify(connection, times(1)).close();
+    }
+
+    @Test
+    @DisplayName("should fail when no permit is freed within the timeout")
+    public void timeoutTest() throws SQLException {
+        dataSource.getConnection();
+
+        Throwable exception = catchThrowable(() -> dataSource.getConnection());
+
+        assertThat(exception).isInstanceOf(SQLTransientConnectionException.class)
+                .hasMessageStartingWith("no connection available after 10 ms");
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test
+    @DisplayName("should give the permit back when the pool fails")
+    public void releaseOnFailureTest() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool closed")).thenReturn(connection);
+
+        Throwable exception = catchThrowable(() -> dataSource.getConnection());
+
+        assertThat(exception).hasMessage("pool closed");
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should ask the pool again until the timeout once it holds a permit")
+    public void retryPoolTest() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLTransientConnectionException("pool timed out")).thenReturn(connection);
+
+        assertThat(dataSource.getConnection()).isNotNull();
+
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    @DisplayName("should fail with the pool timeout once the whole timeout passed")
+    public void poolTimeoutTest() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLTransientConnectionException("pool timed out"));
+
+        Throwable exception = catchThrowable(() -> dataSource.getConnection());
+
+        assertThat(exception).hasMessage("pool timed out");
+        assertThat(dataSource.getWaitingCount()).isZero();
+        reset(target);
+        when(target.getConnection()).thenReturn(connection);
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+}
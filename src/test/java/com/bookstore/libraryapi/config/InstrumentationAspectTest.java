@@ -0,0 +1,94 @@
+package com.bookstore.libraryapi.config;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.mapper.DtoMapper;
+import com.bookstore.libraryapi.api.mapper.GeneratedDtoMapper;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.BookSearchService;
+import com.bookstore.libraryapi.service.BookService;
+import com.bookstore.libraryapi.service.impl.BookServiceImpl;
+import com.bookstore.libraryapi.service.impl.IsbnBloomFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class InstrumentationAspectTest {
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T instrument(T target, double mappingSampleRate) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new InstrumentationAspect(registry, mappingSampleRate));
+        return (T) factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("should time service calls by method and exception")
+    public void serviceTimerTest() {
+        BookRepository repository = mock(BookRepository.class);
+        when(repository.findById(1l)).thenReturn(Optional.of(Book.builder().id(1l).build()));
+        BookService service = instrument(new BookServiceImpl(repository, mock(IsbnBloomFilter.class),
+                mock(EntityManager.class), mock(BookSearchService.class)), 1);
+
+        service.getById(1l);
+        catchThrowable(() -> service.update(new Book()));
+
+        assertThat(registry.get("library.service").tags("class", "BookServiceImpl", "method", "getById", "exception", "none")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("library.service").tags("method", "update", "exception", "IllegalArgumentException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should only time the sampled mapping calls")
+    public void mappingSampleTest() {
+        DtoMapper unsampled = instrument(new GeneratedDtoMapper(), 0);
+        DtoMapper sampled = instrument(new GeneratedDtoMapper(), 1);
+        Book book = Book.builder().id(1l).title("title").author("author").isbn("isbn").build();
+
+        BookDto dto = unsampled.toDto(book);
+        sampled.toDto(book);
+        sampled.toDto(book);
+
+        assertThat(dto.getIsbn()).isEqualTo("isbn");
+        assertThat(registry.get("library.mapping").tag("method", "toDto").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should time scheduled jobs")
+    public void scheduledJobTest() {
+        instrument(new Job(), 1).run();
+
+        assertThat(registry.get("library.scheduler.job").tags("class", "Job", "method", "run").timer().count()).isEqualTo(1);
+    }
+
+    public static class Job {
+        @Scheduled(fixedDelay = 1000)
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.bookstore.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    DataSource primary;
+
+    @Mock
+    DataSource firstReplica;
+
+    @Mock
+    DataSource secondReplica;
+
+    @Mock
+    Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(connection);
+        when(firstReplica.getConnection()).thenReturn(connection);
+        when(secondReplica.getConnection()).thenReturn(connection);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        ReadYourWrites window = ReadYourWrites.current();
+        if (window != null) {
+            window.end();
+        }
+    }
+
+    @Test
+    @DisplayName("should send read-only transactions to the replicas in turn and the rest to the primary")
+    public void roundRobinTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+
+        use(dataSource.getConnection());
+        readOnly();
+        for (int i = 0; i < 4; i++) {
+            use(dataSource.getConnection());
+        }
+
+        verify(primary, times(1)).getConnection();
+        verify(firstReplica, times(2)).getConnection();
+        verify(secondReplica, times(2)).getConnection();
+    }
+
+    @Test
+    @DisplayName("should send a read-only transaction to the replica with the fewest open connections")
+    public void leastConnectionsTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.LEAST_CONNECTIONS);
+        readOnly();
+
+        Connection held = dataSource.getConnection();
+        use(held);
+        for (int i = 0; i < 2; i++) {
+            try (Connection next = dataSource.getConnection()) {
+                use(next);
+            }
+        }
+        assertThat(dataSource.getActiveCount(0)).isEqualTo(1);
+        held.close();
+
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(2)).getConnection();
+        assertThat(dataSource.getActiveCount(0)).isZero();
+    }
+
+    @Test
+    @DisplayName("should keep the reads on the primary after a write of the same client")
+    public void readYourWritesTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+        AtomicLong opened = new AtomicLong();
+        ReadYourWrites.start(5000, 0, opened::set);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        use(dataSource.getConnection());
+        readOnly();
+        use(dataSource.getConnection());
+
+        assertThat(opened.get()).isGreaterThan(System.currentTimeMillis());
+        verify(primary, times(2)).getConnection();
+        verifyNoInteractions(firstReplica, secondReplica);
+    }
+
+    @Test
+    @DisplayName("should read from the primary when the replica hands out no connection")
+    public void fallbackTest() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLTransientConnectionException("replica down"));
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+        readOnly();
+
+        use(dataSource.getConnection());
+
+        verify(primary, times(1)).getConnection();
+        assertThat(dataSource.getActiveCount(0)).isZero();
+    }
+
+    @Test
+    @DisplayName("should read from the primary when asked to, without opening the read-your-writes window")
+    public void onPrimaryTest() throws SQLException {
+        ReplicaRoutingDataSource dataSource = routing(ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+        AtomicLong opened = new AtomicLong();
+        ReadYourWrites.start(5000, 0, opened::set);
+        readOnly();
+
+        Connection connection = ReplicaRoutingDataSource.onPrimary(() -> {
+            try {
+                Connection next = dataSource.getConnection();
+                use(next);
+                return next;
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        use(dataSource.getConnection());
+
+        assertThat(connection).isNotNull();
+        assertThat(opened.get()).isZero();
+        verify(primary, times(1)).getConnection();
+        verify(firstReplica, times(1)).getConnection();
+    }
+
+    @Test
+    @DisplayName("should close the primary and replica pools with the routing data source")
+    public void closeTest() {
+        HikariDataSource primaryPool = mock(HikariDataSource.class);
+        HikariDataSource replicaPool = mock(HikariDataSource.class);
+
+        new ReplicaRoutingDataSource(primaryPool, Arrays.asList(replicaPool, firstReplica),
+                ReplicaRoutingDataSource.Balancing.ROUND_ROBIN).close();
+
+        verify(primaryPool).close();
+        verify(replicaPool).close();
+    }
+
+    @Test
+    @DisplayName("should leave the routing data source and the timeout of its primary pool to the virtual threads guard")
+    public void unguardedTest() {
+        HikariDataSource primaryPool = new HikariDataSource();
+        primaryPool.setConnectionTimeout(30_000);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primaryPool, Arrays.asList(firstReplica, secondReplica),
+                ReplicaRoutingDataSource.Balancing.ROUND_ROBIN);
+
+        Object guarded = VirtualThreadConfig.boundedDataSourcePostProcessor().postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertThat(guarded).isSameAs(dataSource);
+        assertThat(primaryPool.getConnectionTimeout()).isEqualTo(30_000);
+        primaryPool.close();
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Balancing balancing) {
+        return new ReplicaRoutingDataSource(primary, Arrays.asList(firstReplica, secondReplica), balancing);
+    }
+
+    private static void readOnly() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    /**
+     * The connection is only fetched by the first statement.
+     */
+    private static void use(Connection connection) throws SQLException {
+        connection.createStatement();
+    }
+}
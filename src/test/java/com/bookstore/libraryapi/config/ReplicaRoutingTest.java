@@ -0,0 +1,141 @@
+package com.bookstore.libraryapi.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.servlet.http.Cookie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and its replica. Nothing replicates between
+ * them, so a row only found in one of them shows where a statement went.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "application.datasource.replica.urls=" + ReplicaRoutingTest.REPLICA_URL
+})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+public class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    static final String BOOK_API = "/api/books";
+
+    static final String LOAN_API = "/api/loans";
+
+    static JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+
+    static JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @Autowired
+    MockMvc mvc;
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    }
+
+    @Test
+    @DisplayName("should find books on the replica and save them on the primary")
+    public void readFromReplicaTest(CapturedOutput output) throws Exception {
+        insertBook(replica, 1_000_001L, "replica-only-isbn");
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API).param("isbn", "replica-only-isbn"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(1));
+        createBook("primary-only-isbn");
+
+        assertThat(countBooks(primary, "primary-only-isbn")).isEqualTo(1);
+        assertThat(countBooks(replica, "primary-only-isbn")).isZero();
+        assertThat(countBooks(primary, "replica-only-isbn")).isZero();
+        assertThat(output).doesNotContain("not identical to originally prepared Connection");
+    }
+
+    @Test
+    @DisplayName("should read the cached books from the primary without pinning the client to it")
+    public void cachedReadFromPrimaryTest() throws Exception {
+        insertBook(primary, 1_000_003L, "cached-isbn", "primary-title");
+        insertBook(replica, 1_000_003L, "cached-isbn", "stale-title");
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API + "/1000003"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("title").value("primary-title"))
+                .andExpect(cookie().doesNotExist(ReadYourWritesFilter.COOKIE));
+    }
+
+    @Test
+    @DisplayName("should find a book just saved by the same client on the primary")
+    public void readYourWritesTest() throws Exception {
+        Cookie window = createBook("own-write-isbn").getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API).param("isbn", "own-write-isbn").cookie(window))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(1));
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API).param("isbn", "own-write-isbn"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("totalElements").value(0));
+    }
+
+    @Test
+    @DisplayName("should save loans on the primary after reading their books from the replica in the same request")
+    public void writeAfterReplicaReadTest() throws Exception {
+        insertBook(primary, 1_000_002L, "replicated-isbn");
+        insertBook(replica, 1_000_002L, "replicated-isbn");
+        String json = "[{\"isbn\": \"replicated-isbn\", \"customer\": \"replica-customer\", \"email\": \"customer@email.com\"}]";
+
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API + "/batch").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("[0].success").value(true))
+                .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE));
+
+        assertThat(countLoans(primary, "replica-customer")).isEqualTo(1);
+        assertThat(countLoans(replica, "replica-customer")).isZero();
+    }
+
+    private MvcResult createBook(String isbn) throws Exception {
+        String json = "{\"isbn\": \"" + isbn + "\", \"author\": \"valid-author\", \"title\": \"valid-title\"}";
+        return mvc.perform(MockMvcRequestBuilders.post(BOOK_API).contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE))
+                .andReturn();
+    }
+
+    private static void insertBook(JdbcTemplate database, long id, String isbn) {
+        insertBook(database, id, isbn, "valid-title");
+    }
+
+    private static void insertBook(JdbcTemplate database, long id, String isbn, String title) {
+        database.update("insert into book (id, title, author, isbn) values (?, ?, 'valid-author', ?)", id, title, isbn);
+    }
+
+    private static Integer countBooks(JdbcTemplate database, String isbn) {
+        return database.queryForObject("select count(*) from book where isbn = ?", Integer.class, isbn);
+    }
+
+    private static Integer countLoans(JdbcTemplate database, String customer) {
+        return database.queryForObject("select count(*) from loan where customer = ?", Integer.class, customer);
+    }
+}
@@ -0,0 +1,163 @@
+package com.bookstore.libraryapi.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class SqlMetricsDataSourceTest {
+
+    SimpleMeterRegistry registry;
+
+    SqlQueryStats stats;
+
+    SqlMetricsDataSource dataSource;
+
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        stats = new SqlQueryStats();
+        dataSource = new SqlMetricsDataSource(new DriverManagerDataSource("jdbc:h2:mem:sql-metrics;DB_CLOSE_DELAY=-1", "sa", ""), stats, 100);
+        dataSource.bindTo(registry);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists item (id bigint primary key)");
+        jdbcTemplate.update("delete from item");
+    }
+
+    @Test
+    @DisplayName("should time statements and record them in the trace of the thread")
+    public void traceStatementsTest() {
+        SqlTrace trace = SqlTrace.start(true);
+        try {
+            jdbcTemplate.batchUpdate("insert into item (id) values (?)", Arrays.asList(new Object[]{1}, new Object[]{2}));
+            jdbcTemplate.queryForObject("select count(*) from item", Long.class);
+        } finally {
+            trace.end();
+        }
+
+        assertThat(trace.getCount()).isEqualTo(2);
+        assertThat(trace.getStatements()).hasSize(2);
+        assertThat(trace.getStatements().get(1)).startsWith("select count(*) from item");
+        assertThat(registry.get("library.jdbc.statements").tag("type", "query").timer().count()).isEqualTo(1);
+        assertThat(SqlTrace.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("should only count the statements of requests outside the capture sample")
+    public void uncapturedTraceTest() {
+        SqlTrace trace = SqlTrace.start(false);
+        try {
+            jdbcTemplate.queryForObject("select count(*) from item", Long.class);
+        } finally {
+            trace.end();
+        }
+
+        assertThat(trace.getCount()).isEqualTo(1);
+        assertThat(trace.getStatements()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should record the statements of each request by endpoint")
+    public void filterTest() throws Exception {
+        SqlTraceFilter filter = new SqlTraceFilter(registry, stats, new SqlBudget(0, 0, false), 1, 0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/books/{id}");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response) {
+                jdbcTemplate.queryForObject("select count(*) from item", Long.class);
+                jdbcTemplate.queryForObject("select count(*) from item", Long.class);
+            }
+        });
+
+        assertThat(registry.get("library.http.sql.statements").tag("uri", "/api/books/{id}").summary().totalAmount()).isEqualTo(2);
+        assertThat(registry.get("library.http.sql.time").tag("method", "GET").timer().count()).isEqualTo(1);
+        assertThat(SqlTrace.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("should group statements differing only in their values by shape")
+    public void shapeTest() {
+        assertThat(SqlQueryStats.normalize("select * from book b where b.id = 12 and b.title = 'it''s'"))
+                .isEqualTo("select * from book b where b.id = ? and b.title = ?");
+        assertThat(SqlQueryStats.normalize("select book0_.id from book book0_\n where book0_.id in (?, ?,?)"))
+                .isEqualTo("select book0_.id from book book0_ where book0_.id in (...)");
+
+        jdbcTemplate.queryForObject("select count(*) from item where id > 1", Long.class);
+        jdbcTemplate.queryForObject("select count(*) from item where id > 2", Long.class);
+        jdbcTemplate.queryForObject("select count(*) from item where id > ?", Long.class, 3);
+
+        assertThat(stats.top(SqlQueryStats.Shape.BY_COUNT, 1))
+                .extracting(SqlQueryStats.Shape::getSql, SqlQueryStats.Shape::getCount)
+                .containsExactly(tuple("select count(*) from item where id > ?", 3L));
+    }
+
+    @Test
+    @DisplayName("should rank the shapes while other threads keep recording them")
+    public void topWhileRecordingTest() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            stats.record("select " + i, i);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread recorder = new Thread(() -> {
+            for (long n = 0; running.get(); n++) {
+                stats.record("select " + n % 200, n % 7_919);
+            }
+        });
+        recorder.start();
+        try {
+            for (int i = 0; i < 500; i++) {
+                assertThat(stats.top(SqlQueryStats.Shape.BY_TIME, 200)).hasSize(200).isSortedAccordingTo(SqlQueryStats.Shape.BY_TIME);
+            }
+        } finally {
+            running.set(false);
+            recorder.join();
+        }
+    }
+
+    @Test
+    @DisplayName("should report the statement a request repeats and fail it over the budget when asked to")
+    public void budgetTest() {
+        SqlTraceFilter filter = new SqlTraceFilter(registry, stats, new SqlBudget(3, 0, true), 0, 10_000);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/loans");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/loans");
+
+        Throwable thrown = catchThrowable(() -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(javax.servlet.ServletRequest request, javax.servlet.ServletResponse response) {
+                for (int id = 0; id < 4; id++) {
+                    jdbcTemplate.queryForList("select id from item where id = " + id);
+                }
+            }
+        }));
+
+        assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessageContaining("4 statements, budget 3");
+        assertThat(stats.getOverBudgetCount()).isEqualTo(1);
+        assertThat(stats.getOverBudget().get(0).getEndpoint()).isEqualTo("GET /api/loans");
+        SqlQueryStats.Shape repeated = stats.top(SqlQueryStats.Shape.BY_REPEATS, 1).get(0);
+        assertThat(repeated.getSql()).isEqualTo("select id from item where id = ?");
+        assertThat(repeated.getMaxPerRequest()).isEqualTo(4);
+        assertThat(repeated.getMaxPerRequestEndpoint()).isEqualTo("GET /api/loans");
+    }
+}
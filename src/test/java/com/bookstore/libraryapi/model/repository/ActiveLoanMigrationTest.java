@@ -0,0 +1,55 @@
+package com.bookstore.libraryapi.model.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Upgrades a database that holds loans from before {@code book.active_loan_id} was kept up to date.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ActiveLoanMigrationTest {
+
+    static final String URL = "jdbc:h2:mem:active-loan-migration;DB_CLOSE_DELAY=-1";
+
+    JdbcTemplate database = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+
+    @Test
+    @DisplayName("should flag every book with its open loan when upgrading")
+    public void backfillActiveLoanTest() {
+        Flyway.configure().dataSource(URL, "sa", "").target("5").load().migrate();
+        insertBook(1L, "lent-isbn");
+        insertBook(2L, "returned-isbn");
+        insertBook(3L, "never-lent-isbn");
+        insertLoan(10L, 1L, true);
+        insertLoan(11L, 1L, false);
+        insertLoan(12L, 2L, true);
+
+        Flyway.configure().dataSource(URL, "sa", "").target("6").load().migrate();
+
+        assertThat(activeLoanId(1L)).isEqualTo(11L);
+        assertThat(activeLoanId(2L)).isNull();
+        assertThat(activeLoanId(3L)).isNull();
+    }
+
+    private void insertBook(long id, String isbn) {
+        database.update("insert into book (id, title, author, isbn) values (?, 'valid-title', 'valid-author', ?)", id, isbn);
+    }
+
+    private void insertLoan(long id, long bookId, boolean returned) {
+        database.update("insert into loan (id, id_book, customer, loan_date, returned) values (?, ?, 'valid-customer', current_date, ?)",
+                id, bookId, returned);
+    }
+
+    private Long activeLoanId(long bookId) {
+        return database.queryForObject("select active_loan_id from book where id = ?", Long.class, bookId);
+    }
+}
@@ -1,6 +1,7 @@
 package com.bookstore.libraryapi.model.repository;
 
 import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -8,12 +9,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -38,27 +47,13 @@ public class BookRepositoryTest {
     }
 
     @Test
-    @DisplayName("should return true if  book exists with provided isbn")
-    public void returnTrueWhenIsbnExists() {
-//        cenario
-        String isbn = "valid-isbn";
-        Book book = createValidBook();
-        persistBook(book);
-//        execução
-        boolean exists = repository.existsByIsbn(isbn);
-//        verificão
-        assertThat(exists).isTrue();
-    }
+    @DisplayName("should reject a second book with the same isbn")
+    public void rejectDuplicatedIsbnTest() {
+        persistBook(createValidBook());
 
-    @Test
-    @DisplayName("should return false if  book exists with provided isbn")
-    public void returnFalseWhenIsbnExists() {
-//        cenario
-        String isbn = "not-persisted-isbn";
-//        execução
-        boolean exists = repository.existsByIsbn(isbn);
-//        verificão
-        assertThat(exists).isFalse();
+        Throwable exception = Assertions.catchThrowable(() -> repository.saveAndFlush(createValidBook()));
+
+        assertThat(exception).isInstanceOf(DataIntegrityViolationException.class);
     }
 
     @Test
@@ -83,6 +78,25 @@ public class BookRepositoryTest {
         assertThat(savedBook.getId()).isNotNull();
     }
 
+    @Test
+    @DisplayName("should bump the version on update and reject an update from a stale copy")
+    public void versionTest() {
+        Book book = createValidBook();
+        persistBook(book);
+        entityManager.flush();
+        entityManager.detach(book);
+        assertThat(book.getVersion()).isEqualTo(0L);
+
+        Book stale = Book.builder().id(book.getId()).isbn(book.getIsbn()).author(book.getAuthor())
+                .title("stale-title").version(book.getVersion()).build();
+        book.setTitle("updated-title");
+        Book updated = repository.saveAndFlush(book);
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        entityManager.detach(updated);
+
+        assertThatThrownBy(() -> repository.saveAndFlush(stale)).isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
     @Test
     @DisplayName("should delete a book")
     public void deleteBookTest() {
@@ -96,4 +110,52 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
 
     }
+
+    @Test
+    @DisplayName("should flag a book with only one active loan at a time")
+    public void acquireActiveLoanTest() {
+        Book book = persistBook(createValidBook());
+
+        int first = repository.acquireActiveLoan(book.getId(), 1L);
+        int second = repository.acquireActiveLoan(book.getId(), 2L);
+        int released = repository.releaseActiveLoan(book.getId(), 1L);
+        int third = repository.acquireActiveLoan(book.getId(), 2L);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        assertThat(released).isEqualTo(1);
+        assertThat(third).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should flag books in batch skipping the ones already lent")
+    public void acquireActiveLoansTest() {
+        Book available = persistBook(createValidBook());
+        Book lent = persistBook(Book.builder().isbn("other-isbn").author("valid-author").title("valid-title").build());
+        repository.acquireActiveLoan(lent.getId(), 1L);
+        entityManager.flush();
+
+        int[] result = repository.acquireActiveLoans(Arrays.asList(
+                Loan.builder().id(2L).book(available).build(),
+                Loan.builder().id(3L).book(lent).build()));
+
+        assertThat(result).containsExactly(1, 0);
+    }
+
+    @Test
+    @DisplayName("should seek books after the given id matching the prefix filters")
+    public void findAfterTest() {
+        Book first = persistBook(Book.builder().isbn("isbn-1").author("Valid Author").title("valid-title").build());
+        Book second = persistBook(Book.builder().isbn("isbn-2").author("valid author").title("valid-title").build());
+        persistBook(Book.builder().isbn("isbn-3").author("other author").title("valid-title").build());
+        persistBook(Book.builder().isbn("isbn%4").author("valid author").title("valid-title").build());
+
+        Slice<Book> firstSlice = repository.findAfter(0L, null, "valid%", "isbn-%", PageRequest.of(0, 1));
+        Slice<Book> lastSlice = repository.findAfter(first.getId(), null, "valid%", "isbn-%", PageRequest.of(0, 1));
+
+        assertThat(firstSlice.getContent()).containsExactly(first);
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(lastSlice.getContent()).containsExactly(second);
+        assertThat(lastSlice.hasNext()).isFalse();
+    }
 }
@@ -0,0 +1,104 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.LateLoanNotification;
+import com.bookstore.libraryapi.model.entity.NotificationStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LateLoanNotificationRepositoryTest {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    private LateLoanNotificationRepository repository;
+
+    private LateLoanNotification createPendingNotification(Long loanId) {
+        return LateLoanNotification.builder()
+                .loanId(loanId)
+                .customerEmail("customer@email.com")
+                .notificationDate(LocalDate.now())
+                .status(NotificationStatus.PENDING)
+                .attempts(0)
+                .build();
+    }
+
+    @Test
+    @DisplayName("should return loans already notified on the date")
+    public void findNotifiedLoanIdsTest() {
+        entityManager.persist(createPendingNotification(1L));
+
+        List<Long> notified = repository.findNotifiedLoanIds(LocalDate.now(), Arrays.asList(1L, 2L));
+
+        assertThat(notified).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("should claim pending notifications only once")
+    public void claimTest() {
+        LateLoanNotification notification = createPendingNotification(1L);
+        entityManager.persist(notification);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Long> ids = repository.findClaimableIds(now, now.minusMinutes(15), PageRequest.of(0, 10));
+        int firstClaim = repository.claim(ids, "first-token", now, now.minusMinutes(15));
+        int secondClaim = repository.claim(ids, "second-token", now, now.minusMinutes(15));
+        entityManager.clear();
+
+        assertThat(ids).containsExactly(notification.getId());
+        assertThat(firstClaim).isEqualTo(1);
+        assertThat(secondClaim).isEqualTo(0);
+        assertThat(repository.findByClaimTokenAndStatus("first-token", NotificationStatus.CLAIMED)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("should make stale claims claimable again")
+    public void staleClaimTest() {
+        LateLoanNotification notification = createPendingNotification(1L);
+        notification.setStatus(NotificationStatus.CLAIMED);
+        notification.setClaimToken("crashed-token");
+        notification.setClaimedAt(LocalDateTime.now().minusHours(1));
+        entityManager.persist(notification);
+
+        List<Long> ids = repository.findClaimableIds(LocalDateTime.now(), LocalDateTime.now().minusMinutes(15), PageRequest.of(0, 10));
+
+        assertThat(ids).containsExactly(notification.getId());
+    }
+
+    @Test
+    @DisplayName("should claim a released notification only once its next attempt is due")
+    public void backoffTest() {
+        LateLoanNotification notification = createPendingNotification(1L);
+        notification.setStatus(NotificationStatus.CLAIMED);
+        notification.setClaimToken("failed-token");
+        notification.setClaimedAt(LocalDateTime.now());
+        entityManager.persist(notification);
+        LocalDateTime now = LocalDateTime.now();
+
+        repository.release(notification.getId(), "failed-token", NotificationStatus.PENDING, now.plusMinutes(1));
+        entityManager.clear();
+
+        assertThat(repository.findClaimableIds(now, now.minusMinutes(15), PageRequest.of(0, 10))).isEmpty();
+        assertThat(repository.claim(Arrays.asList(notification.getId()), "early-token", now, now.minusMinutes(15))).isZero();
+        assertThat(repository.findClaimableIds(now.plusMinutes(2), now.minusMinutes(15), PageRequest.of(0, 10)))
+                .containsExactly(notification.getId());
+        assertThat(repository.findById(notification.getId()).get().getAttempts()).isEqualTo(1);
+    }
+}
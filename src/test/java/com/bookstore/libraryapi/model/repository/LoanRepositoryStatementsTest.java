@@ -0,0 +1,77 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class LoanRepositoryStatementsTest {
+
+    private static final int LOANS = 30;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    LoanRepository repository;
+
+    private Statistics statistics;
+
+    private Book lastBook;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < LOANS; i++) {
+            lastBook = Book.builder().isbn("isbn-" + i).author("valid-author").title("valid-title").build();
+            entityManager.persist(lastBook);
+            entityManager.persist(Loan.builder().book(lastBook).customer("valid-customer").loanDate(LocalDate.now()).build());
+        }
+        entityManager.flush();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("should load a page of loans with their books in a constant number of statements")
+    public void findByBookIsbnOrCustomerStatementsTest() {
+        long small = countStatements(() -> repository.findByBookIsbnOrCustomer("isbn-0", "valid-customer", PageRequest.of(0, 5)));
+        long large = countStatements(() -> repository.findByBookIsbnOrCustomer("isbn-0", "valid-customer", PageRequest.of(0, 20)));
+
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    @DisplayName("should load the loans of a book together with the book")
+    public void findByBookStatementsTest() {
+        long statements = countStatements(() -> repository.findByBook(lastBook, PageRequest.of(0, 5)));
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    private long countStatements(Supplier<Page<Loan>> query) {
+        entityManager.clear();
+        statistics.clear();
+        Page<Loan> page = query.get();
+        page.getContent().forEach(loan -> loan.getBook().getIsbn());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -2,6 +2,7 @@ package com.bookstore.libraryapi.model.repository;
 
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,6 +10,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -90,4 +92,66 @@ public class LoanRepositoryTest {
 
         assertThat(result).isEmpty();
     }
+
+    @Test
+    @DisplayName("should retrieve late loans in chunks after the given id")
+    public void findLateLoansAfterTest() {
+        Book book = createValidBook();
+        entityMananger.persist(book);
+        Loan first = Loan.builder().book(book).customer("first-customer").customerEmail("first@email.com")
+                .loanDate(LocalDate.now().minusDays(5)).build();
+        Loan second = Loan.builder().book(book).customer("second-customer").customerEmail("second@email.com")
+                .loanDate(LocalDate.now().minusDays(6)).build();
+        entityMananger.persist(first);
+        entityMananger.persist(second);
+
+        List<LateLoanProjection> firstChunk = repository.findLateLoansAfter(LocalDate.now().minusDays(4), 0L, 0, 1, PageRequest.of(0, 1));
+        List<LateLoanProjection> secondChunk = repository.findLateLoansAfter(LocalDate.now().minusDays(4), firstChunk.get(0).getId(), 0, 1, PageRequest.of(0, 1));
+
+        assertThat(firstChunk).hasSize(1);
+        assertThat(firstChunk.get(0).getId()).isEqualTo(first.getId());
+        assertThat(firstChunk.get(0).getCustomerEmail()).isEqualTo("first@email.com");
+        assertThat(secondChunk).hasSize(1);
+        assertThat(secondChunk.get(0).getId()).isEqualTo(second.getId());
+    }
+
+    @Test
+    @DisplayName("should split late loans into disjoint shards")
+    public void findLateLoansAfterInShardTest() {
+        Book book = createValidBook();
+        entityMananger.persist(book);
+        for (int i = 0; i < 4; i++) {
+            entityMananger.persist(Loan.builder().book(book).customer("customer-" + i).customerEmail("customer@email.com")
+                    .loanDate(LocalDate.now().minusDays(5)).build());
+        }
+
+        List<LateLoanProjection> evenShard = repository.findLateLoansAfter(LocalDate.now().minusDays(4), 0L, 0, 2, PageRequest.of(0, 10));
+        List<LateLoanProjection> oddShard = repository.findLateLoansAfter(LocalDate.now().minusDays(4), 0L, 1, 2, PageRequest.of(0, 10));
+
+        assertThat(evenShard).hasSize(2).allMatch(loan -> loan.getId() % 2 == 0);
+        assertThat(oddShard).hasSize(2).allMatch(loan -> loan.getId() % 2 == 1);
+    }
+
+    @Test
+    @DisplayName("should seek loans after the given id without counting")
+    public void findAfterTest() {
+        Book book = createValidBook();
+        entityMananger.persist(book);
+        Loan first = Loan.builder().book(book).customer("valid-customer").loanDate(LocalDate.now()).build();
+        Loan second = Loan.builder().book(book).customer("valid-customer").loanDate(LocalDate.now()).build();
+        Loan other = Loan.builder().book(book).customer("other-customer").loanDate(LocalDate.now()).build();
+        entityMananger.persist(first);
+        entityMananger.persist(second);
+        entityMananger.persist(other);
+
+        Slice<Loan> firstSlice = repository.findAfter(0L, null, "valid-customer", PageRequest.of(0, 1));
+        Slice<Loan> lastSlice = repository.findAfter(first.getId(), null, "valid-customer", PageRequest.of(0, 1));
+        Slice<Loan> all = repository.findAfter(0L, null, null, PageRequest.of(0, 10));
+
+        assertThat(firstSlice.getContent()).containsExactly(first);
+        assertThat(firstSlice.hasNext()).isTrue();
+        assertThat(lastSlice.getContent()).containsExactly(second);
+        assertThat(lastSlice.hasNext()).isFalse();
+        assertThat(all.getContent()).containsExactly(first, second, other);
+    }
 }
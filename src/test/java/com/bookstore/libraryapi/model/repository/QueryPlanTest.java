@@ -0,0 +1,107 @@
+package com.bookstore.libraryapi.model.repository;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the repository queries, captures the SQL Hibernate sends and asks H2 to {@code EXPLAIN} it,
+ * so a dropped index or a predicate that can no longer use one fails here instead of in production.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.bookstore.libraryapi.model.repository.QueryPlanTest$RecordingInspector")
+public class QueryPlanTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("should look books up by isbn through the unique isbn index")
+    public void isbnLookupPlanTest() {
+        assertThat(planOf(() -> bookRepository.findByIsbn("valid-isbn"))).contains("UX_BOOK_ISBN");
+    }
+
+    @Test
+    @DisplayName("should look loans up by book through the book index")
+    public void loansByBookPlanTest() {
+        Book book = bookRepository.save(Book.builder().isbn("valid-isbn").author("valid-author").title("valid-title").build());
+
+        String plan = planOf(() -> loanRepository.findByBook(book, PageRequest.of(0, 10)));
+
+        assertThat(plan).contains("ID_BOOK = ?").doesNotContain("LOAN.tableScan");
+    }
+
+    @Test
+    @DisplayName("should filter loans by customer or by isbn through their indexes")
+    public void loansByCustomerOrIsbnPlanTest() {
+        // a second, empty page makes Spring Data run the count query as well
+        String byCustomer = planOf(() -> loanRepository.findByCustomer("valid-customer", PageRequest.of(1, 10)));
+        String byIsbn = planOf(() -> loanRepository.findByBookIsbn("valid-isbn", PageRequest.of(1, 10)));
+
+        assertThat(byCustomer).contains("IDX_LOAN_CUSTOMER").doesNotContain("tableScan");
+        assertThat(byIsbn).contains("UX_BOOK_ISBN").contains("ID_BOOK = ").doesNotContain("tableScan");
+    }
+
+    @Test
+    @DisplayName("should read the late loans chunk by chunk in id order through the returned and id index")
+    public void lateLoansPlanTest() {
+        Book book = bookRepository.saveAndFlush(Book.builder().isbn("valid-isbn").author("valid-author").title("valid-title").build());
+        LocalDate today = LocalDate.now();
+        jdbcTemplate.batchUpdate("insert into loan (id, id_book, customer, loan_date, returned) values (?, ?, 'valid-customer', ?, ?)",
+                IntStream.rangeClosed(1, 20_000).mapToObj(id -> new Object[]{id, book.getId(),
+                        Date.valueOf(today.minusDays(id % 30)), id % 10 != 0}).collect(Collectors.toList()));
+
+        String plan = planOf(() -> loanRepository.findLateLoansAfter(today.minusDays(4), 10_000L, 1, 4, PageRequest.of(0, 100)));
+
+        assertThat(plan).contains("IDX_LOAN_RETURNED_ID").contains("index sorted").doesNotContain("tableScan");
+    }
+
+    private String planOf(Runnable query) {
+        RecordingInspector.STATEMENTS.clear();
+        query.run();
+        assertThat(RecordingInspector.STATEMENTS).isNotEmpty();
+        return RecordingInspector.STATEMENTS.stream()
+                .map(sql -> jdbcTemplate.queryForObject("explain " + sql, String.class, new Object[countParameters(sql)]))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static int countParameters(String sql) {
+        return (int) sql.chars().filter(c -> c == '?').count();
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.service.impl.AsyncEmailServiceImpl;
+import com.bookstore.libraryapi.service.impl.SmtpTransportPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class AsyncEmailServiceTest {
+
+    AsyncEmailServiceImpl service;
+
+    MeterRegistry meterRegistry;
+
+    @Mock
+    SmtpTransportPool transportPool;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new AsyncEmailServiceImpl(transportPool, meterRegistry, 2, 10);
+        ReflectionTestUtils.setField(service, "sender", "mail@library-api.com");
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 4L);
+    }
+
+    @Test
+    @DisplayName("should send one message per recipient")
+    public void sendMailsTest() throws Exception {
+        service.sendMails("message", Arrays.asList("first@email.com", "second@email.com", "third@email.com"));
+        service.shutdown();
+
+        verify(transportPool, times(3)).send(any(SimpleMailMessage.class));
+        assertThat(meterRegistry.counter("library.mail.sent").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should retry transient failures with backoff")
+    public void retryTransientFailureTest() throws Exception {
+        doThrow(new MessagingException("connection reset")).doNothing()
+                .when(transportPool).send(any(SimpleMailMessage.class));
+
+        service.sendMails("message", Arrays.asList("first@email.com"));
+        service.shutdown();
+
+        verify(transportPool, times(2)).send(any(SimpleMailMessage.class));
+        assertThat(meterRegistry.counter("library.mail.retries").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("library.mail.sent").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not retry permanent failures")
+    public void permanentFailureTest() throws Exception {
+        doThrow(new SendFailedException("invalid address"))
+                .when(transportPool).send(any(SimpleMailMessage.class));
+
+        service.sendMails("message", Arrays.asList("invalid"));
+        service.shutdown();
+
+        verify(transportPool, times(1)).send(any(SimpleMailMessage.class));
+        assertThat(meterRegistry.counter("library.mail.failed").count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,142 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.BookDto;
+import com.bookstore.libraryapi.api.dto.BookImportResultDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.impl.BookImportServiceImpl;
+import com.bookstore.libraryapi.service.impl.IsbnBloomFilter;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookImportServiceTest {
+
+    BookImportService service;
+
+    @Mock
+    BookService bookService;
+
+    @Mock
+    BookRepository repository;
+
+    IsbnBloomFilter isbnFilter;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        isbnFilter = new IsbnBloomFilter(repository, meterRegistry, 1000, 0.01);
+        service = new BookImportServiceImpl(bookService, repository, isbnFilter);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "maxReportedErrors", 10);
+        when(bookService.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private BookDto createBookDto(String isbn) {
+        return BookDto.builder().author("valid-author").title("valid-title").isbn(isbn).build();
+    }
+
+    @Test
+    @DisplayName("should insert valid books in chunks")
+    public void importInChunksTest() {
+        List<BookDto> books = Arrays.asList(createBookDto("isbn-1"), createBookDto("isbn-2"), createBookDto("isbn-3"));
+
+        BookImportResultDTO result = service.importBooks(books.iterator());
+
+        ArgumentCaptor<List<Book>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(bookService, times(2)).saveAll(chunks.capture());
+        assertThat(chunks.getAllValues().get(0)).hasSize(2);
+        assertThat(chunks.getAllValues().get(1)).hasSize(1);
+        assertThat(result.getReceived()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getRejected()).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("should reject isbns duplicated in the import or already stored")
+    public void rejectDuplicatedIsbnTest() {
+        when(repository.findExistingIsbns(any())).thenReturn(Collections.singletonList("stored-isbn"));
+        List<BookDto> books = Arrays.asList(createBookDto("isbn-1"), createBookDto("isbn-1"), createBookDto("stored-isbn"));
+
+        BookImportResultDTO result = service.importBooks(books.iterator());
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("index").containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    @DisplayName("should reject invalid rows and keep importing")
+    public void rejectInvalidRowsTest() throws Exception {
+        String ndjson = "{\"title\":\"valid-title\",\"author\":\"valid-author\",\"isbn\":\"isbn-1\"}\n" +
+                "{\"title\":null,\"author\":\"valid-author\",\"isbn\":\"isbn-2\"}\n" +
+                "{\"title\":\"valid-title\",\"author\":\"\",\"isbn\":\"isbn-3\"}\n" +
+                "{\"title\":\"valid-title\",\"author\":\"valid-author\",\"isbn\":\"isbn-4\"}\n";
+        MappingIterator<BookDto> books = new ObjectMapper().readerFor(BookDto.class).readValues(ndjson);
+
+        BookImportResultDTO result = service.importBooks(books);
+
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("index").containsExactly(1, 2);
+    }
+
+    @Test
+    @DisplayName("should look up only the isbns the filter may hold and count the ones not stored as false positives")
+    public void filterFalsePositiveTest() {
+        isbnFilter.load();
+        // a deleted book stays in the filter
+        isbnFilter.put("deleted-isbn");
+        List<BookDto> books = Arrays.asList(createBookDto("deleted-isbn"), createBookDto("new-isbn"));
+
+        BookImportResultDTO result = service.importBooks(books.iterator());
+
+        verify(repository).findExistingIsbns(Collections.singletonList("deleted-isbn"));
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(meterRegistry.get("library.isbn.filter.false.positives").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.isbn.filter.checks").tag("result", "negative").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should insert a failed chunk row by row so a duplicate missed by the filter only rejects itself")
+    public void retryFailedChunkByRowTest() {
+        when(bookService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Book> chunk = invocation.getArgument(0);
+            if (chunk.stream().anyMatch(book -> book.getIsbn().equals("other-instance-isbn"))) {
+                throw new DataIntegrityViolationException("ux_book_isbn");
+            }
+            return chunk;
+        });
+        List<BookDto> books = Arrays.asList(createBookDto("isbn-1"), createBookDto("other-instance-isbn"));
+
+        BookImportResultDTO result = service.importBooks(books.iterator());
+
+        verify(bookService, times(3)).saveAll(anyList());
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting("index").containsExactly(1);
+        assertThat(result.getErrors()).extracting("message").containsExactly("isbn já cadastrado");
+    }
+}
@@ -0,0 +1,58 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.service.impl.BookLocks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookLocksTest {
+
+    BookLocks locks = new BookLocks(new SimpleMeterRegistry(), 16, 200);
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("should hold the lock of a book until the transaction completes")
+    public void lockUntilCompletionTest() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        locks.lockUntilCompletion(Arrays.asList(1L, 2L));
+
+        Throwable blocked = CompletableFuture.supplyAsync(() ->
+                catchThrowable(() -> locks.lockUntilCompletion(Collections.singleton(2L)))).get(5, TimeUnit.SECONDS);
+        assertThat(blocked).isInstanceOf(CannotAcquireLockException.class);
+
+        Throwable free = CompletableFuture.supplyAsync(() ->
+                catchThrowable(() -> locks.lockUntilCompletion(Collections.singleton(3L)))).get(5, TimeUnit.SECONDS);
+        assertThat(free).isNull();
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        Throwable released = CompletableFuture.supplyAsync(() ->
+                catchThrowable(() -> locks.lockUntilCompletion(Collections.singleton(2L)))).get(5, TimeUnit.SECONDS);
+        assertThat(released).isNull();
+    }
+}
@@ -0,0 +1,154 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.BookSearchResultDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.impl.BookSearchServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class BookSearchServiceTest {
+
+    @TempDir
+    Path indexDir;
+
+    BookRepository repository = Mockito.mock(BookRepository.class);
+
+    BookSearchServiceImpl service;
+
+    Book philosopher = book(1L, "Harry Potter and the Philosopher's Stone", "J. K. Rowling", "978-0-7475-3269-9");
+
+    Book chamber = book(2L, "Harry Potter and the Chamber of Secrets", "J. K. Rowling", "978-0-7475-3849-3");
+
+    Book hobbit = book(3L, "The Hobbit", "J. R. R. Tolkien", "978-0-261-10221-7");
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        service = new BookSearchServiceImpl(repository, indexDir.toString(), false);
+        service.index(Arrays.asList(philosopher, chamber, hobbit));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        service.close();
+    }
+
+    private static Book book(Long id, String title, String author, String isbn) {
+        return Book.builder().id(id).title(title).author(author).isbn(isbn).build();
+    }
+
+    private List<Long> ids(List<BookSearchResultDTO> results) {
+        return results.stream().map(BookSearchResultDTO::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("should match words anywhere in the title, by prefix and with typos")
+    public void searchTest() {
+        assertThat(ids(service.search("chamber", 10))).containsExactly(2L);
+        assertThat(ids(service.search("hobb", 10))).containsExactly(3L);
+        assertThat(ids(service.search("tolkein", 10))).containsExactly(3L);
+        assertThat(ids(service.search("harry pottr rowling", 10))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(service.search("dune", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("should rank exact word matches above prefix and fuzzy matches")
+    public void rankingTest() {
+        service.index(Collections.singletonList(book(4L, "Stones of Venice", "John Ruskin", "isbn-4")));
+
+        List<BookSearchResultDTO> results = service.search("stone", 10);
+
+        assertThat(ids(results)).containsExactly(1L, 4L);
+        assertThat(results.get(0).getScore()).isGreaterThan(results.get(1).getScore());
+        assertThat(results.get(0).getTitle()).isEqualTo(philosopher.getTitle());
+    }
+
+    @Test
+    @DisplayName("should find a book by isbn with or without hyphens")
+    public void searchByIsbnTest() {
+        assertThat(ids(service.search("9780261102217", 10))).containsExactly(3L);
+        assertThat(service.search("978-0-261-10221-7", 10).get(0).getIsbn()).isEqualTo(hobbit.getIsbn());
+    }
+
+    @Test
+    @DisplayName("should update and remove indexed books")
+    public void updateAndRemoveTest() {
+        hobbit.setTitle("The Hobbit, or There and Back Again");
+        service.index(Collections.singletonList(hobbit));
+        service.remove(chamber);
+
+        assertThat(ids(service.search("there back", 10))).containsExactly(3L);
+        assertThat(service.search("chamber", 10)).isEmpty();
+        assertThat(service.getIndexedCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should rebuild the index from the database dropping books no longer there")
+    public void rebuildTest() throws Exception {
+        when(repository.findAfter(Mockito.eq(0L), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(philosopher), PageRequest.of(0, 1), true));
+        when(repository.findAfter(Mockito.eq(1L), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(Collections.singletonList(hobbit), PageRequest.of(0, 1), false));
+
+        assertThat(service.rebuild()).isTrue();
+        while (service.isRebuilding()) {
+            Thread.sleep(10);
+        }
+
+        assertThat(service.getIndexedCount()).isEqualTo(2);
+        assertThat(service.search("chamber", 10)).isEmpty();
+        assertThat(ids(service.search("hobbit", 10))).containsExactly(3L);
+    }
+
+    @Test
+    @DisplayName("should keep the updates made while a rebuild reads stale chunks")
+    public void updateDuringRebuildTest() throws Exception {
+        List<Book> staleChunk = Arrays.asList(
+                book(1L, philosopher.getTitle(), philosopher.getAuthor(), philosopher.getIsbn()),
+                book(2L, chamber.getTitle(), chamber.getAuthor(), chamber.getIsbn()),
+                book(3L, hobbit.getTitle(), hobbit.getAuthor(), hobbit.getIsbn()));
+        when(repository.findAfter(Mockito.eq(0L), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    // committed after the chunk was read, applied before the rebuild writes it
+                    hobbit.setTitle("The Hobbit, or There and Back Again");
+                    service.index(Collections.singletonList(hobbit));
+                    service.remove(chamber);
+                    return new SliceImpl<>(staleChunk, PageRequest.of(0, 3), false);
+                });
+
+        assertThat(service.rebuild()).isTrue();
+        while (service.isRebuilding()) {
+            Thread.sleep(10);
+        }
+
+        assertThat(ids(service.search("there back", 10))).containsExactly(3L);
+        assertThat(service.search("chamber", 10)).isEmpty();
+        assertThat(service.getIndexedCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should keep the index on disk across restarts")
+    public void persistenceTest() throws Exception {
+        service.close();
+        service = new BookSearchServiceImpl(repository, indexDir.toString(), false);
+
+        assertThat(service.getIndexedCount()).isEqualTo(3);
+        assertThat(ids(service.search("hobbit", 10))).containsExactly(3L);
+    }
+}
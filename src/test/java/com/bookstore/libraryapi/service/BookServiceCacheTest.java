@@ -0,0 +1,136 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.config.CacheConfig;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.impl.BookServiceImpl;
+import com.bookstore.libraryapi.service.impl.IsbnBloomFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(classes = {BookServiceImpl.class, CacheConfig.class})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService service;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository repository;
+
+    @MockBean
+    IsbnBloomFilter isbnFilter;
+
+    @MockBean
+    EntityManager entityManager;
+
+    @MockBean
+    BookSearchService searchService;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    private Book createValidBook() {
+        return Book.builder().id(1l).isbn("valid-isbn").author("valid-author").title("valid-title").build();
+    }
+
+    @Test
+    @DisplayName("should hit the database once for repeated lookups by id and isbn")
+    public void cacheLookupsTest() {
+        Book book = createValidBook();
+        when(repository.findById(1l)).thenReturn(Optional.of(book));
+        when(repository.findByIsbn("valid-isbn")).thenReturn(Optional.of(book));
+
+        service.getById(1l);
+        Optional<Book> byId = service.getById(1l);
+        service.getByIsbn("valid-isbn");
+        Optional<Book> byIsbn = service.getByIsbn("valid-isbn");
+
+        assertThat(byId).contains(book);
+        assertThat(byIsbn).contains(book);
+        verify(repository, times(1)).findById(1l);
+        verify(repository, times(1)).findByIsbn("valid-isbn");
+    }
+
+    @Test
+    @DisplayName("should not cache missing books")
+    public void notCacheMissingBookTest() {
+        when(repository.findById(1l)).thenReturn(Optional.empty());
+
+        service.getById(1l);
+        Optional<Book> result = service.getById(1l);
+
+        assertThat(result).isNotPresent();
+        verify(repository, times(2)).findById(1l);
+    }
+
+    @Test
+    @DisplayName("should write updated books through to the cache")
+    public void updateWritesThroughTest() {
+        Book book = createValidBook();
+        Book updated = createValidBook();
+        updated.setTitle("updated-title");
+        when(repository.findById(1l)).thenReturn(Optional.of(book));
+        when(repository.save(updated)).thenReturn(updated);
+
+        service.getById(1l);
+        service.update(updated);
+        Optional<Book> byId = service.getById(1l);
+        Optional<Book> byIsbn = service.getByIsbn("valid-isbn");
+
+        assertThat(byId.get().getTitle()).isEqualTo("updated-title");
+        assertThat(byIsbn.get().getTitle()).isEqualTo("updated-title");
+        verify(repository, times(1)).findById(1l);
+        verify(repository, never()).findByIsbn("valid-isbn");
+    }
+
+    @Test
+    @DisplayName("should evict a book whose update failed on a stale version")
+    public void staleUpdateEvictsTest() {
+        Book book = createValidBook();
+        when(repository.findById(1l)).thenReturn(Optional.of(book));
+        when(repository.save(book)).thenThrow(new ObjectOptimisticLockingFailureException(Book.class, 1l));
+
+        service.getById(1l).get().setTitle("edited-title");
+        assertThatThrownBy(() -> service.update(book)).isInstanceOf(OptimisticLockingFailureException.class);
+        service.getById(1l);
+
+        verify(repository, times(2)).findById(1l);
+    }
+
+    @Test
+    @DisplayName("should evict deleted books from the cache")
+    public void deleteEvictsTest() {
+        Book book = createValidBook();
+        when(repository.findById(1l)).thenReturn(Optional.of(book));
+
+        service.getById(1l);
+        service.delete(book);
+        service.getById(1l);
+
+        verify(repository, times(2)).findById(1l);
+    }
+}
@@ -4,6 +4,8 @@ import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.repository.BookRepository;
 import com.bookstore.libraryapi.service.impl.BookServiceImpl;
+import com.bookstore.libraryapi.service.impl.IsbnBloomFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,10 +14,12 @@ import org.junit.jupiter.api.condition.DisabledIfSystemProperties;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import javax.persistence.EntityManager;
 import javax.swing.text.html.Option;
 import java.util.Arrays;
 import java.util.List;
@@ -34,17 +38,22 @@ public class BookServiceTest {
     @MockBean
     BookRepository repository;
 
+    @MockBean
+    BookSearchService searchService;
+
+    IsbnBloomFilter isbnFilter;
+
     @BeforeEach
     public void setUp() {
-        this.service = new BookServiceImpl(repository);
+        this.isbnFilter = new IsbnBloomFilter(repository, new SimpleMeterRegistry(), 1000, 0.01);
+        this.service = new BookServiceImpl(repository, isbnFilter, Mockito.mock(EntityManager.class), searchService);
     }
 
     @Test
     @DisplayName("Should save a book")
     public void saveBookTest() {
         Book book = createValidBook();
-        when(repository.existsByIsbn(anyString())).thenReturn(false);
-        when(repository.save(book)).thenReturn(book);
+        when(repository.saveAndFlush(book)).thenReturn(book);
         Book savedBook = service.save(book);
 
         assertThat(savedBook.getId()).isNotNull();
@@ -62,14 +71,14 @@ public class BookServiceTest {
     public void shouldNotSaveBookWithDuplicatedIsbn() {
         Book book = createValidBook();
 
-        when(repository.existsByIsbn(anyString())).thenReturn(true);
+        when(repository.saveAndFlush(book)).thenThrow(new DataIntegrityViolationException("ux_book_isbn"));
 
         Throwable exception = Assertions.catchThrowable(() -> service.save(book));
         assertThat(exception)
                 .isInstanceOf(BusinessException.class)
                 .hasMessage("isbn já cadastrado");
 
-        Mockito.verify(repository, Mockito.never()).save(book);
+        verify(searchService, never()).index(Mockito.anyCollection());
 
     }
 
@@ -179,6 +188,21 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Should seek books after an id with escaped prefix filters")
+    public void findBookAfterTest() {
+        Book filter = Book.builder().title("100%_Java").build();
+        Slice<Book> slice = new SliceImpl<Book>(Arrays.asList(createValidBook()), PageRequest.of(0, 10), false);
+
+        when(repository.findAfter(Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(Pageable.class)))
+                .thenReturn(slice);
+
+        Slice<Book> result = service.findAfter(filter, 5L, 10);
+
+        assertThat(result).isSameAs(slice);
+        verify(repository).findAfter(5L, "100\\%\\_java%", null, null, PageRequest.of(0, 10));
+    }
+
     @Test
     @DisplayName("Should return a book by isbn")
     public void getBookByIsbnTest() {
@@ -194,5 +218,17 @@ public class BookServiceTest {
         verify(repository, times(1)).findByIsbn(isbn);
     }
 
-}
 
+    @Test
+    @DisplayName("should leave the duplicate check to the unique isbn constraint")
+    public void saveBookWithoutDuplicateLookupTest() {
+        Book book = createValidBook();
+        isbnFilter.load();
+        when(repository.saveAndFlush(book)).thenReturn(book);
+
+        service.save(book);
+
+        verify(repository, never()).findByIsbn(anyString());
+        assertThat(isbnFilter.mightContain(book.getIsbn())).isTrue();
+    }
+}
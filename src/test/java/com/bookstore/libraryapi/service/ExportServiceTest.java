@@ -0,0 +1,73 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.impl.ExportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(ExportServiceImpl.class)
+public class ExportServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    ExportService service;
+
+    private Book first;
+
+    private Book second;
+
+    private Loan loan;
+
+    @BeforeEach
+    public void setUp() {
+        first = entityManager.persist(Book.builder().isbn("001").title("Dom Casmurro").author("Machado de Assis").build());
+        second = entityManager.persist(Book.builder().isbn("002").title("Say \"hi\", again").author("Fulano").build());
+        loan = entityManager.persist(Loan.builder().book(first).customer("Fulano").customerEmail("fulano@email.com")
+                .loanDate(LocalDate.of(2020, 6, 1)).build());
+        entityManager.flush();
+    }
+
+    private String export(ExportFormat format, boolean loans) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (loans) {
+            service.exportLoans(format, out);
+        } else {
+            service.exportBooks(format, out);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("should export the books as csv, quoting fields with separators")
+    public void exportBooksCsvTest() throws Exception {
+        assertThat(export(ExportFormat.CSV, false)).isEqualTo(
+                "id,isbn,title,author\r\n" +
+                first.getId() + ",001,Dom Casmurro,Machado de Assis\r\n" +
+                second.getId() + ",002,\"Say \"\"hi\"\", again\",Fulano\r\n");
+    }
+
+    @Test
+    @DisplayName("should export the loans as newline delimited json")
+    public void exportLoansNdjsonTest() throws Exception {
+        assertThat(export(ExportFormat.NDJSON, true)).isEqualTo(
+                "{\"id\":" + loan.getId() + ",\"customer\":\"Fulano\",\"email\":\"fulano@email.com\"," +
+                "\"loanDate\":\"2020-06-01\",\"returned\":false,\"isbn\":\"001\",\"title\":\"Dom Casmurro\"}\n");
+    }
+}
@@ -0,0 +1,87 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.projection.BookIsbnProjection;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.service.impl.IsbnBloomFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class IsbnBloomFilterTest {
+
+    IsbnBloomFilter filter;
+
+    @Mock
+    BookRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        filter = new IsbnBloomFilter(repository, new SimpleMeterRegistry(), 10000, 0.01);
+    }
+
+    @Test
+    @DisplayName("should report every isbn as possibly present before loading")
+    public void notReadyTest() {
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain("978-0-00-000000-2")).isTrue();
+    }
+
+    @Test
+    @DisplayName("should load isbns from the database and never give false negatives")
+    public void loadTest() {
+        when(repository.findIsbnsAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(isbn(1L, "978-85-7522-000-1")));
+        when(repository.findIsbnsAfter(eq(1L), any(Pageable.class))).thenReturn(Collections.emptyList());
+
+        filter.load();
+        IntStream.range(0, 5000).forEach(i -> filter.put("isbn-" + i));
+
+        assertThat(filter.isReady()).isTrue();
+        assertThat(filter.mightContain("978-85-7522-000-1")).isTrue();
+        assertThat(IntStream.range(0, 5000).allMatch(i -> filter.mightContain("isbn-" + i))).isTrue();
+        long falsePositives = IntStream.range(0, 10000).filter(i -> filter.mightContain("absent-" + i)).count();
+        assertThat(falsePositives).isLessThan(500);
+    }
+
+    @Test
+    @DisplayName("should treat isbn-10 and isbn-13 spellings of a book as the same isbn")
+    public void normalizeTest() {
+        when(repository.findIsbnsAfter(eq(0L), any(Pageable.class))).thenReturn(Collections.emptyList());
+        filter.load();
+
+        filter.put("0-306-40615-2");
+
+        assertThat(filter.mightContain("978-0-306-40615-7")).isTrue();
+        assertThat(filter.mightContain("9780306406157")).isTrue();
+    }
+
+    private BookIsbnProjection isbn(Long id, String isbn) {
+        return new BookIsbnProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getIsbn() {
+                return isbn;
+            }
+        };
+    }
+}
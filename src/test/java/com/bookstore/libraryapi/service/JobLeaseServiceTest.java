@@ -0,0 +1,108 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.entity.JobLease;
+import com.bookstore.libraryapi.model.repository.JobLeaseRepository;
+import com.bookstore.libraryapi.service.impl.JobLeaseServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class JobLeaseServiceTest {
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    JobLeaseRepository repository;
+
+    JobLeaseService firstReplica;
+
+    JobLeaseService secondReplica;
+
+    @BeforeEach
+    public void setUp() {
+        firstReplica = new JobLeaseServiceImpl(repository, "first-replica");
+        secondReplica = new JobLeaseServiceImpl(repository, "second-replica");
+    }
+
+    @Test
+    @DisplayName("should grant a lease to a single replica")
+    public void acquireLeaseOnceTest() {
+        Optional<JobLease> first = firstReplica.tryAcquire("late-loans", Duration.ofMinutes(30));
+        Optional<JobLease> second = secondReplica.tryAcquire("late-loans", Duration.ofMinutes(30));
+
+        assertThat(first).isPresent();
+        assertThat(first.get().getOwner()).isEqualTo("first-replica");
+        assertThat(second).isNotPresent();
+    }
+
+    @Test
+    @DisplayName("should let another replica take a released lease and resume its progress")
+    public void takeOverReleasedLeaseTest() {
+        firstReplica.tryAcquire("late-loans", Duration.ofMinutes(30));
+        firstReplica.recordProgress("late-loans", 42L, 10L, Duration.ofMinutes(30));
+        firstReplica.release("late-loans");
+        entityManager.clear();
+
+        Optional<JobLease> second = secondReplica.tryAcquire("late-loans", Duration.ofMinutes(30));
+
+        assertThat(second).isPresent();
+        assertThat(second.get().getOwner()).isEqualTo("second-replica");
+        assertThat(second.get().getLastProcessedId()).isEqualTo(42L);
+        assertThat(second.get().getProcessedCount()).isEqualTo(10L);
+    }
+
+    @Test
+    @DisplayName("should not record progress without holding the lease")
+    public void recordProgressWithoutLeaseTest() {
+        firstReplica.tryAcquire("late-loans", Duration.ofMinutes(30));
+
+        boolean recorded = secondReplica.recordProgress("late-loans", 1L, 1L, Duration.ofMinutes(30));
+
+        assertThat(recorded).isFalse();
+    }
+
+    @Test
+    @DisplayName("should take over the unfinished run of an expired lease and keep its progress")
+    public void takeOverUnfinishedRunTest() {
+        JobLease lease = firstReplica.tryAcquire("late-loans", Duration.ofMinutes(30)).get();
+        firstReplica.recordProgress("late-loans", 42L, 10L, Duration.ofMinutes(-1));
+        entityManager.clear();
+
+        Optional<JobLease> second = secondReplica.tryTakeOver("late-loans", Duration.ofMinutes(30));
+
+        assertThat(second).isPresent();
+        assertThat(second.get().getOwner()).isEqualTo("second-replica");
+        assertThat(second.get().getRunDate()).isEqualTo(lease.getRunDate());
+        assertThat(second.get().getLastProcessedId()).isEqualTo(42L);
+        assertThat(firstReplica.recordProgress("late-loans", 43L, 11L, Duration.ofMinutes(30))).isFalse();
+    }
+
+    @Test
+    @DisplayName("should not take over a running or a completed run")
+    public void takeOverOnlyUnfinishedRunTest() {
+        firstReplica.tryAcquire("late-loans", Duration.ofMinutes(30));
+
+        Optional<JobLease> whileRunning = secondReplica.tryTakeOver("late-loans", Duration.ofMinutes(30));
+        firstReplica.complete("late-loans");
+        entityManager.clear();
+        Optional<JobLease> afterCompletion = secondReplica.tryTakeOver("late-loans", Duration.ofMinutes(30));
+
+        assertThat(whileRunning).isNotPresent();
+        assertThat(afterCompletion).isNotPresent();
+    }
+}
@@ -0,0 +1,120 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.exception.BusinessException;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.repository.BookRepository;
+import com.bookstore.libraryapi.model.repository.LoanRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest
+public class LoanConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    private static final int RUSH_THREADS = 32;
+
+    private static final int RUSH_BOOKS = 10;
+
+    private static final int RUSH_ATTEMPTS = 500;
+
+    @Autowired
+    LoanService service;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("should lend a book only once when loans are created concurrently")
+    public void concurrentLoansTest() throws Exception {
+        Book book = bookRepository.save(Book.builder().isbn("concurrent-isbn").author("valid-author").title("valid-title").build());
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String customer = "customer-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    service.save(Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build());
+                    created.incrementAndGet();
+                } catch (BusinessException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(THREADS - 1);
+        assertThat(loanRepository.findByBook(book, PageRequest.of(0, 10)).getTotalElements())
+                .isEqualTo(1);
+        assertThat(bookRepository.findById(book.getId()).get().getActiveLoanId()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("should never lend a book twice during a rush on several books")
+    public void loanRushTest() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < RUSH_BOOKS; i++) {
+            books.add(bookRepository.save(Book.builder().isbn("rush-isbn-" + i).author("valid-author").title("valid-title").build()));
+        }
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(RUSH_THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < RUSH_ATTEMPTS; i++) {
+            Book book = books.get(ThreadLocalRandom.current().nextInt(RUSH_BOOKS));
+            String customer = "rush-customer-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    service.save(Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).build());
+                    created.incrementAndGet();
+                } catch (BusinessException e) {
+                    // lost the book to another customer
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(created.get()).isLessThanOrEqualTo(RUSH_BOOKS);
+        for (Book book : books) {
+            List<Loan> loans = loanRepository.findByBook(book, PageRequest.of(0, 10)).getContent();
+            assertThat(loans).hasSizeLessThanOrEqualTo(1);
+            assertThat(bookRepository.findById(book.getId()).get().getActiveLoanId())
+                    .isEqualTo(loans.isEmpty() ? null : loans.get(0).getId());
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.bookstore.libraryapi.service;
 
+import com.bookstore.libraryapi.api.dto.BatchItemResultDTO;
 import com.bookstore.libraryapi.api.dto.LoanFilterDTO;
+import com.bookstore.libraryapi.api.dto.LoanReturnDTO;
 import com.bookstore.libraryapi.exception.BusinessException;
 import com.bookstore.libraryapi.model.entity.Book;
 import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.model.repository.BookRepository;
 import com.bookstore.libraryapi.model.repository.LoanRepository;
+import com.bookstore.libraryapi.service.impl.BookLocks;
 import com.bookstore.libraryapi.service.impl.LoanServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,6 +24,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import javax.swing.text.html.Option;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,9 +41,16 @@ public class LoanServiceTest {
     @Mock
     LoanRepository repository;
 
+    @Mock
+    BookRepository bookRepository;
+
+    @Mock
+    LoanStatisticsService statistics;
+
     @BeforeEach
     public void setUp() {
-        service = new LoanServiceImpl(this.repository);
+        service = new LoanServiceImpl(this.repository, this.bookRepository, this.statistics,
+                new BookLocks(new SimpleMeterRegistry(), 16, 1000));
     }
 
 
@@ -47,15 +60,16 @@ public class LoanServiceTest {
         Loan savingLoan = createValidLoan();
         Loan savedLoan = createValidLoan();
 
-        when (repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(false);
+        savedLoan.setId(1L);
         when(repository.save(savingLoan)).thenReturn(savedLoan);
+        when(bookRepository.acquireActiveLoan(savedLoan.getBook().getId(), savedLoan.getId())).thenReturn(1);
 
         Loan loan = service.save(savingLoan);
 
         assertThat(loan.getId()).isEqualTo(savedLoan.getId());
         assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
-
+        verify(statistics).loanCreated(savedLoan);
     }
 
   public static Loan createValidLoan() {
@@ -73,13 +87,29 @@ public class LoanServiceTest {
 
         Loan savingLoan = createValidLoan();
 
-        when (repository.existsByBookAndNotReturned(savingLoan.getBook())).thenReturn(true);
+        savingLoan.setId(1L);
+        when(repository.save(savingLoan)).thenReturn(savingLoan);
+        when(bookRepository.acquireActiveLoan(savingLoan.getBook().getId(), savingLoan.getId())).thenReturn(0);
         Throwable exception = catchThrowable(() -> service.save(savingLoan));
 
         assertThat(exception).isInstanceOf(BusinessException.class)
                 .hasMessage("Book already in use");
 
+        verify(bookRepository).acquireActiveLoan(savingLoan.getBook().getId(), savingLoan.getId());
+    }
+
+    @Test
+    @DisplayName("should not insert a loan for a book already flagged as lent")
+    public void saveLoanWithBookFlaggedAsLentTest() {
+        Loan savingLoan = createValidLoan();
+        when(bookRepository.findActiveLoanId(savingLoan.getBook().getId())).thenReturn(Optional.of(7L));
+
+        Throwable exception = catchThrowable(() -> service.save(savingLoan));
+
+        assertThat(exception).isInstanceOf(BusinessException.class)
+                .hasMessage("Book already in use");
         verify(repository, never()).save(savingLoan);
+        verify(bookRepository, never()).acquireActiveLoan(Mockito.any(), Mockito.any());
     }
 
     @Test
@@ -118,6 +148,30 @@ public class LoanServiceTest {
 
         assertThat(updatedLoan.getReturned()).isTrue();
         verify(repository).save(loan);
+        verify(bookRepository).releaseActiveLoan(loan.getBook().getId(), loan.getId());
+        verify(statistics, never()).loanReturned(loan);
+    }
+
+    @Test
+    @DisplayName("should count a loan as returned only when it released its book")
+    public void updateLoanStatisticsTest() {
+        Loan loan = createValidLoan();
+        loan.setId(1L);
+        loan.setReturned(true);
+        when(bookRepository.releaseActiveLoan(1L, 1L)).thenReturn(1, 0);
+
+        service.update(loan);
+        service.update(loan);
+
+        verify(statistics, times(1)).loanReturned(loan);
+
+        loan.setReturned(false);
+        when(bookRepository.acquireActiveLoan(1L, 1L)).thenReturn(1);
+        service.update(loan);
+        loan.getBook().setActiveLoanId(1L);
+        service.update(loan);
+
+        verify(statistics, times(1)).loanReopened(loan);
     }
 
 
@@ -142,4 +196,64 @@ public class LoanServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(pageRequest.getPageSize());
 
     }
+
+    @Test
+    @DisplayName("should filter loans by a single property without the combined query")
+    public void findLoanBySinglePropertyTest() {
+        Loan loan = createValidLoan();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<Loan> page = new PageImpl<Loan>(Arrays.asList(loan), pageRequest, 1);
+        Mockito.when(repository.findByCustomer(loan.getCustomer(), pageRequest)).thenReturn(page);
+        Mockito.when(repository.findByBookIsbn("valid-isbn", pageRequest)).thenReturn(page);
+
+        Page<Loan> byCustomer = service.find(LoanFilterDTO.builder().customer(loan.getCustomer()).build(), pageRequest);
+        Page<Loan> byIsbn = service.find(LoanFilterDTO.builder().isbn("valid-isbn").build(), pageRequest);
+
+        assertThat(byCustomer.getContent()).containsExactly(loan);
+        assertThat(byIsbn.getContent()).containsExactly(loan);
+        verify(repository, Mockito.never()).findByBookIsbnOrCustomer(Mockito.any(), Mockito.any(), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("should save loans in batch rejecting books already in use")
+    public void saveAllTest() {
+        Loan free = createValidLoan();
+        Loan sameBookTwice = createValidLoan();
+        Loan inUse = createValidLoan();
+        inUse.getBook().setId(2L);
+        inUse.getBook().setActiveLoanId(5L);
+
+        when(repository.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Loan> loans = invocation.getArgument(0);
+            loans.forEach(loan -> loan.setId(10L));
+            return loans;
+        });
+        when(bookRepository.acquireActiveLoans(Mockito.anyList())).thenReturn(new int[]{1});
+
+        List<BatchItemResultDTO> results = service.saveAll(Arrays.asList(free, sameBookTwice, inUse));
+
+        assertThat(results).extracting(BatchItemResultDTO::isSuccess).containsExactly(true, false, false);
+        assertThat(results.get(0).getId()).isEqualTo(10L);
+        assertThat(results.get(2).getMessage()).isEqualTo("Book already in use");
+        verify(repository, times(1)).saveAll(Collections.singletonList(free));
+        verify(bookRepository, times(1)).acquireActiveLoans(Collections.singletonList(free));
+        verify(repository, never()).deleteAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("should update returned flag of loans in batch")
+    public void updateReturnedTest() {
+        Loan loan = createValidLoan();
+        loan.setId(1L);
+        when(repository.findAllWithBookByIdIn(Mockito.anyCollection())).thenReturn(Collections.singletonList(loan));
+
+        List<BatchItemResultDTO> results = service.updateReturned(Arrays.asList(
+                LoanReturnDTO.builder().id(1L).returned(true).build(),
+                LoanReturnDTO.builder().id(2L).returned(true).build()));
+
+        assertThat(loan.getReturned()).isTrue();
+        assertThat(results).extracting(BatchItemResultDTO::isSuccess).containsExactly(true, false);
+        assertThat(results.get(1).getMessage()).isEqualTo("Loan not found");
+        verify(bookRepository).releaseActiveLoans(Collections.singletonList(1L));
+    }
 }
@@ -0,0 +1,127 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.api.dto.LoanStatsDTO;
+import com.bookstore.libraryapi.api.dto.RankingEntryDTO;
+import com.bookstore.libraryapi.model.entity.Book;
+import com.bookstore.libraryapi.model.entity.Loan;
+import com.bookstore.libraryapi.service.impl.LoanStatisticsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanStatisticsServiceTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    DataSource dataSource;
+
+    MeterRegistry meterRegistry;
+
+    LoanStatisticsServiceImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        service = new LoanStatisticsServiceImpl(new JdbcTemplate(dataSource), meterRegistry, 2, false);
+    }
+
+    private Book persistBook(String isbn) {
+        return entityManager.persist(Book.builder().isbn(isbn).title("title " + isbn).author("author").build());
+    }
+
+    private Loan loan(Book book, String customer, LocalDate loanDate, boolean returned) {
+        return Loan.builder().book(book).customer(customer).customerEmail(customer + "@email.com")
+                .loanDate(loanDate).returned(returned).build();
+    }
+
+    @Test
+    @DisplayName("should rebuild the counters and rankings from the loan history")
+    public void rebuildTest() {
+        Book first = persistBook("001");
+        Book second = persistBook("002");
+        Book third = persistBook("003");
+        entityManager.persist(loan(first, "Fulano", LocalDate.now().minusDays(30), true));
+        entityManager.persist(loan(first, "Ciclano", LocalDate.now().minusDays(10), false));
+        entityManager.persist(loan(second, "Fulano", LocalDate.now(), false));
+        entityManager.persist(loan(third, "Fulano", LocalDate.now().minusDays(20), true));
+        entityManager.flush();
+
+        LoanStatsDTO stats = service.rebuild();
+
+        assertThat(stats.getTotalLoans()).isEqualTo(4);
+        assertThat(stats.getActiveLoans()).isEqualTo(2);
+        assertThat(stats.getOverdueLoans()).isEqualTo(1);
+        assertThat(stats.getTopBooks()).containsExactly(new RankingEntryDTO("001", 2), new RankingEntryDTO("002", 1));
+        assertThat(stats.getTopCustomers()).containsExactly(new RankingEntryDTO("Fulano", 3), new RankingEntryDTO("Ciclano", 1));
+        assertThat(service.getStatistics()).isSameAs(stats);
+        assertThat(meterRegistry.get("library.loans.overdue").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("should move the counters with each loan and show them in the next snapshot")
+    public void incrementTest() {
+        Book book = Book.builder().id(1l).isbn("001").build();
+        Loan late = loan(book, "Fulano", LocalDate.now().minusDays(10), false);
+        Loan recent = loan(book, "Ciclano", LocalDate.now(), false);
+
+        service.loanCreated(late);
+        service.loanCreated(recent);
+        service.loanReturned(late);
+
+        assertThat(meterRegistry.get("library.loans.total").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("library.loans.active").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.loans.overdue").gauge().value()).isEqualTo(0);
+        assertThat(service.getStatistics().getTotalLoans()).isEqualTo(0);
+
+        service.loanReopened(late);
+        service.refreshSnapshot();
+
+        LoanStatsDTO stats = service.getStatistics();
+        assertThat(stats.getActiveLoans()).isEqualTo(2);
+        assertThat(stats.getOverdueLoans()).isEqualTo(1);
+        assertThat(stats.getTopBooks()).containsExactly(new RankingEntryDTO("001", 2));
+    }
+
+    @Test
+    @DisplayName("should pick up the loans of other instances at the scheduled rebuild")
+    public void scheduledRebuildTest() {
+        service.rebuild();
+        entityManager.persist(loan(persistBook("001"), "Fulano", LocalDate.now(), false));
+        entityManager.flush();
+
+        assertThat(meterRegistry.get("library.loans.total").gauge().value()).isEqualTo(0);
+
+        service.scheduledRebuild();
+
+        assertThat(meterRegistry.get("library.loans.total").gauge().value()).isEqualTo(1);
+        assertThat(service.getStatistics().getActiveLoans()).isEqualTo(1);
+        assertThat(service.getStatistics().getTopCustomers()).containsExactly(new RankingEntryDTO("Fulano", 1));
+    }
+
+    @Test
+    @DisplayName("should only count loans once their transaction commits")
+    public void rolledBackLoanTest() {
+        service.loanCreated(loan(Book.builder().id(1l).isbn("001").build(), "Fulano", LocalDate.now(), false));
+
+        assertThat(meterRegistry.get("library.loans.total").gauge().value()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,182 @@
+package com.bookstore.libraryapi.service;
+
+import com.bookstore.libraryapi.model.entity.JobLease;
+import com.bookstore.libraryapi.model.entity.LateLoanNotification;
+import com.bookstore.libraryapi.model.projection.LateLoanProjection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class SchedulerServiceTest {
+
+    SchedulerService service;
+
+    @Mock
+    LoanService loanService;
+
+    @Mock
+    EmailService emailService;
+
+    @Mock
+    NotificationOutboxService outboxService;
+
+    @Mock
+    JobLeaseService leaseService;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        service = new SchedulerService(loanService, emailService, outboxService, leaseService, meterRegistry);
+        ReflectionTestUtils.setField(service, "message", "late loan message");
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "outboxBatchSize", 2);
+        ReflectionTestUtils.setField(service, "shardCount", 1);
+        ReflectionTestUtils.setField(service, "leaseDurationMinutes", 30L);
+        when(leaseService.getInstanceId()).thenReturn("test-instance");
+        when(leaseService.recordProgress(anyString(), anyLong(), anyLong(), any())).thenReturn(true);
+        when(outboxService.claimBatch(2)).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    @DisplayName("should enqueue late loans chunk by chunk")
+    public void enqueueLateLoansInChunksTest() {
+        List<LateLoanProjection> firstChunk = Arrays.asList(lateLoan(1L, "first@email.com"), lateLoan(2L, "second@email.com"));
+        List<LateLoanProjection> secondChunk = Collections.singletonList(lateLoan(3L, "third@email.com"));
+        when(loanService.getLateLoansAfter(0L, 2, 0, 1)).thenReturn(firstChunk);
+        when(loanService.getLateLoansAfter(2L, 2, 0, 1)).thenReturn(secondChunk);
+        when(outboxService.enqueue(any(), any(LocalDate.class))).thenReturn(2, 1);
+
+        service.enqueueLateLoans(lease("late-loans", 0L), 0);
+
+        verify(outboxService).enqueue(eq(firstChunk), any(LocalDate.class));
+        verify(outboxService).enqueue(eq(secondChunk), any(LocalDate.class));
+        verify(leaseService).recordProgress(eq("late-loans"), eq(2L), eq(2L), any());
+        verify(leaseService).recordProgress(eq("late-loans"), eq(3L), eq(3L), any());
+        assertThat(meterRegistry.get("library.scheduler.items").tag("result", "enqueued").counter().count()).isEqualTo(3);
+        verify(loanService, never()).getLateLoansAfter(3L, 2, 0, 1);
+    }
+
+    @Test
+    @DisplayName("should resume from the progress saved on the lease")
+    public void resumeFromLeaseProgressTest() {
+        when(leaseService.tryAcquire(eq("late-loans"), any())).thenReturn(Optional.of(lease("late-loans", 2L)));
+        when(loanService.getLateLoansAfter(2L, 2, 0, 1)).thenReturn(Collections.emptyList());
+
+        service.sendMailToLateLoans();
+
+        verify(loanService).getLateLoansAfter(2L, 2, 0, 1);
+        verify(loanService, never()).getLateLoansAfter(0L, 2, 0, 1);
+    }
+
+    @Test
+    @DisplayName("should skip shards leased by other replicas")
+    public void skipLeasedShardsTest() {
+        ReflectionTestUtils.setField(service, "shardCount", 2);
+        when(leaseService.tryAcquire(eq("late-loans-shard-0"), any())).thenReturn(Optional.empty());
+        when(leaseService.tryAcquire(eq("late-loans-shard-1"), any())).thenReturn(Optional.of(lease("late-loans-shard-1", 0L)));
+        when(loanService.getLateLoansAfter(0L, 2, 1, 2)).thenReturn(Collections.emptyList());
+
+        service.sendMailToLateLoans();
+
+        verify(loanService).getLateLoansAfter(0L, 2, 1, 2);
+        verify(loanService, never()).getLateLoansAfter(anyLong(), anyInt(), eq(0), eq(2));
+    }
+
+    @Test
+    @DisplayName("should finish a run stopped half way once its lease is taken over")
+    public void takeOverStoppedRunTest() {
+        List<LateLoanProjection> firstChunk = Arrays.asList(lateLoan(1L, "first@email.com"), lateLoan(2L, "second@email.com"));
+        List<LateLoanProjection> secondChunk = Collections.singletonList(lateLoan(3L, "third@email.com"));
+        when(loanService.getLateLoansAfter(0L, 2, 0, 1)).thenReturn(firstChunk);
+        when(loanService.getLateLoansAfter(2L, 2, 0, 1))
+                .thenThrow(new IllegalStateException("database gone"))
+                .thenReturn(secondChunk);
+        when(outboxService.enqueue(any(), any(LocalDate.class))).thenReturn(2, 1);
+        when(leaseService.tryTakeOver(eq("late-loans"), any())).thenReturn(Optional.of(lease("late-loans", 2L)));
+
+        Throwable crash = catchThrowable(() -> service.enqueueLateLoans(lease("late-loans", 0L), 0));
+        service.resumeLateLoans();
+
+        assertThat(crash).hasMessage("database gone");
+        verify(leaseService).release("late-loans");
+        verify(outboxService).enqueue(eq(secondChunk), any(LocalDate.class));
+        verify(leaseService, times(1)).complete("late-loans");
+        verify(loanService, never()).getLateLoansAfter(1L, 2, 0, 1);
+    }
+
+    private JobLease lease(String name, Long lastProcessedId) {
+        return JobLease.builder().name(name).lastProcessedId(lastProcessedId).processedCount(0L).build();
+    }
+
+    @Test
+    @DisplayName("should mark outbox notifications as sent or failed")
+    public void drainOutboxTest() {
+        LateLoanNotification sent = notification(1L, "first@email.com");
+        LateLoanNotification failed = notification(2L, "second@email.com");
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IllegalStateException("smtp down"));
+
+        when(outboxService.claimBatch(2))
+                .thenReturn(Arrays.asList(sent, failed))
+                .thenReturn(Collections.emptyList());
+        when(emailService.sendMail("late loan message", "first@email.com")).thenReturn(CompletableFuture.completedFuture(null));
+        when(emailService.sendMail("late loan message", "second@email.com")).thenReturn(failure);
+
+        service.drainOutbox();
+
+        verify(outboxService).markSent(sent);
+        verify(outboxService).markFailed(failed);
+        verify(outboxService, times(2)).claimBatch(2);
+        assertThat(meterRegistry.get("library.scheduler.items").tag("result", "sent").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("library.scheduler.items").tag("result", "failed").counter().count()).isEqualTo(1);
+    }
+
+    private LateLoanNotification notification(Long id, String email) {
+        return LateLoanNotification.builder().id(id).customerEmail(email).claimToken("token").attempts(0).build();
+    }
+
+    private LateLoanProjection lateLoan(Long id, String email) {
+        return new LateLoanProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCustomer() {
+                return "customer-" + id;
+            }
+
+            @Override
+            public String getCustomerEmail() {
+                return email;
+            }
+
+            @Override
+            public LocalDate getLoanDate() {
+                return LocalDate.now().minusDays(5);
+            }
+        };
+    }
+}